@@ -0,0 +1,47 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.crypto.Random;
+import org.abstractj.kalium.keys.AuthenticationKey;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import static org.abstractj.kalium.NaCl.Sodium.HMACSHA512256_KEYBYTES;
+
+public class AuthenticationKeyBenchmark extends MessageBenchmark {
+
+    private AuthenticationKey key;
+    private byte[] mac;
+
+    @Override
+    protected void prepare() {
+        key = new AuthenticationKey(new Random().randomBytes(HMACSHA512256_KEYBYTES));
+        mac = key.sign(message);
+    }
+
+    @Benchmark
+    public byte[] sign(BytesProcessed processed) {
+        processed.bytes += size;
+        return key.sign(message);
+    }
+
+    @Benchmark
+    public boolean verify(BytesProcessed processed) {
+        processed.bytes += size;
+        return key.verify(message, mac);
+    }
+}
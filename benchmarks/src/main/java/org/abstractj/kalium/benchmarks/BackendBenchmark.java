@@ -0,0 +1,82 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.NaCl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.abstractj.kalium.NaCl.Sodium.SHA256BYTES;
+
+/**
+ * Compares the JNR binding with the Foreign Function &amp; Memory one, for a
+ * call without arguments and for hashing messages below and above the size
+ * passed in place. Needs the kalium JAR built and run on JDK 22 or later;
+ * every backend gets its own fork, as the binding is chosen once per JVM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+public class BackendBenchmark {
+
+    @Param({"jnr", "panama"})
+    public String backend;
+
+    @Param({"16", "4096", "65536"})
+    public int size;
+
+    private byte[] message;
+    private final byte[] digest = new byte[SHA256BYTES];
+
+    @Setup(Level.Trial)
+    public void selectBackend() {
+        System.setProperty(NaCl.BACKEND_PROPERTY, backend);
+        NaCl.Sodium sodium = NaCl.sodium();
+        if ("panama".equals(backend) && !"PanamaSodium".equals(sodium.getClass().getSimpleName())) {
+            throw new IllegalStateException("Foreign Function & Memory binding not available");
+        }
+        message = new byte[size];
+        sodium.randombytes(message, size);
+    }
+
+    @Benchmark
+    public int randomInt() {
+        return NaCl.sodium().randombytes_random();
+    }
+
+    @Benchmark
+    public byte[] sha256(BytesProcessed processed) {
+        processed.bytes += size;
+        NaCl.sodium().crypto_hash_sha256(digest, message, size);
+        return digest;
+    }
+}
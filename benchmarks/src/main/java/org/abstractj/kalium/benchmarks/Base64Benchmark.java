@@ -0,0 +1,43 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import static org.abstractj.kalium.encoders.Encoder.BASE64;
+
+public class Base64Benchmark extends MessageBenchmark {
+
+    private String encoded;
+
+    @Override
+    protected void prepare() {
+        encoded = BASE64.encode(message);
+    }
+
+    @Benchmark
+    public String encode(BytesProcessed processed) {
+        processed.bytes += size;
+        return BASE64.encode(message);
+    }
+
+    @Benchmark
+    public byte[] decode(BytesProcessed processed) {
+        processed.bytes += size;
+        return BASE64.decode(encoded);
+    }
+}
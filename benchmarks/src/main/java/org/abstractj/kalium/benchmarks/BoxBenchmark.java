@@ -0,0 +1,74 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.crypto.Box;
+import org.abstractj.kalium.crypto.Random;
+import org.abstractj.kalium.keys.KeyPair;
+import org.abstractj.kalium.keys.PrivateKey;
+import org.abstractj.kalium.keys.PublicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import static org.abstractj.kalium.NaCl.Sodium.NONCE_BYTES;
+
+/**
+ * Compares boxes reusing the shared key computed by {@code beforenm} with
+ * boxes performing the key agreement on every call.
+ */
+public class BoxBenchmark extends MessageBenchmark {
+
+    private PublicKey publicKey;
+    private PrivateKey privateKey;
+    private Box box;
+    private byte[] nonce;
+    private byte[] ciphertext;
+
+    @Override
+    protected void prepare() {
+        KeyPair alice = new KeyPair();
+        KeyPair bob = new KeyPair();
+        publicKey = alice.getPublicKey();
+        privateKey = bob.getPrivateKey();
+        box = new Box(publicKey, privateKey);
+        nonce = new Random().randomBytes(NONCE_BYTES);
+        ciphertext = box.encrypt(nonce, message);
+    }
+
+    @Benchmark
+    public byte[] encryptBeforenm(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.encrypt(nonce, message);
+    }
+
+    @Benchmark
+    public byte[] decryptBeforenm(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.decrypt(nonce, ciphertext);
+    }
+
+    @Benchmark
+    public byte[] encryptPerCall(BytesProcessed processed) {
+        processed.bytes += size;
+        return new Box(publicKey, privateKey).encrypt(nonce, message);
+    }
+
+    @Benchmark
+    public byte[] decryptPerCall(BytesProcessed processed) {
+        processed.bytes += size;
+        return new Box(publicKey, privateKey).decrypt(nonce, ciphertext);
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.crypto.Hash;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class HashBenchmark extends MessageBenchmark {
+
+    private final Hash hash = new Hash();
+
+    @Benchmark
+    public byte[] sha256(BytesProcessed processed) {
+        processed.bytes += size;
+        return hash.sha256(message);
+    }
+
+    @Benchmark
+    public byte[] sha512(BytesProcessed processed) {
+        processed.bytes += size;
+        return hash.sha512(message);
+    }
+
+    @Benchmark
+    public byte[] blake2(BytesProcessed processed) {
+        processed.bytes += size;
+        return hash.blake2(message);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import static org.abstractj.kalium.encoders.Encoder.HEX;
+
+public class HexBenchmark extends MessageBenchmark {
+
+    private String encoded;
+    private char[] chars;
+    private byte[] bytes;
+
+    @Override
+    protected void prepare() {
+        encoded = HEX.encode(message);
+        chars = new char[2 * size];
+        bytes = new byte[size];
+    }
+
+    @Benchmark
+    public String encode(BytesProcessed processed) {
+        processed.bytes += size;
+        return HEX.encode(message);
+    }
+
+    @Benchmark
+    public byte[] decode(BytesProcessed processed) {
+        processed.bytes += size;
+        return HEX.decode(encoded);
+    }
+
+    @Benchmark
+    public char[] encodeTo(BytesProcessed processed) {
+        processed.bytes += size;
+        HEX.encodeTo(message, 0, size, chars, 0);
+        return chars;
+    }
+
+    @Benchmark
+    public byte[] decodeFrom(BytesProcessed processed) {
+        processed.bytes += size;
+        HEX.decodeFrom(encoded, 0, encoded.length(), bytes, 0);
+        return bytes;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.crypto.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class RandomBenchmark extends MessageBenchmark {
+
+    private final Random random = new Random();
+    private final Random buffered = Random.buffered();
+    private byte[] out;
+
+    @Override
+    protected void prepare() {
+        out = new byte[size];
+    }
+
+    @Benchmark
+    public byte[] randomBytes(BytesProcessed processed) {
+        processed.bytes += size;
+        return random.randomBytes(size);
+    }
+
+    @Benchmark
+    public byte[] randomBytesInto(BytesProcessed processed) {
+        processed.bytes += size;
+        random.randomBytes(out, 0, size);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] bufferedRandomBytesInto(BytesProcessed processed) {
+        processed.bytes += size;
+        buffered.randomBytes(out, 0, size);
+        return out;
+    }
+}
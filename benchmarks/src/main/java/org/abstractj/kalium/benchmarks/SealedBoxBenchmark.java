@@ -0,0 +1,47 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.crypto.SealedBox;
+import org.abstractj.kalium.keys.KeyPair;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class SealedBoxBenchmark extends MessageBenchmark {
+
+    private SealedBox box;
+    private byte[] ciphertext;
+
+    @Override
+    protected void prepare() {
+        KeyPair keyPair = new KeyPair();
+        box = new SealedBox(keyPair.getPublicKey().toBytes(),
+                keyPair.getPrivateKey().toBytes());
+        ciphertext = box.encrypt(message);
+    }
+
+    @Benchmark
+    public byte[] encrypt(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.encrypt(message);
+    }
+
+    @Benchmark
+    public byte[] decrypt(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.decrypt(ciphertext);
+    }
+}
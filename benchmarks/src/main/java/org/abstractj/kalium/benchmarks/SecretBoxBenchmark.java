@@ -0,0 +1,80 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.crypto.Random;
+import org.abstractj.kalium.crypto.SecretBox;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.nio.ByteBuffer;
+
+import static org.abstractj.kalium.NaCl.Sodium.MAC_BYTES;
+import static org.abstractj.kalium.NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_KEYBYTES;
+import static org.abstractj.kalium.NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_NONCEBYTES;
+
+public class SecretBoxBenchmark extends MessageBenchmark {
+
+    private SecretBox box;
+    private byte[] nonce;
+    private byte[] ciphertext;
+    private byte[] out;
+
+    private ByteBuffer directNonce;
+    private ByteBuffer directMessage;
+    private ByteBuffer directOut;
+
+    @Override
+    protected void prepare() {
+        Random random = new Random();
+        box = new SecretBox(random.randomBytes(XSALSA20_POLY1305_SECRETBOX_KEYBYTES));
+        nonce = random.randomBytes(XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        ciphertext = box.encrypt(nonce, message);
+        out = new byte[size + MAC_BYTES];
+
+        directNonce = ByteBuffer.allocateDirect(nonce.length);
+        directNonce.put(nonce).flip();
+        directMessage = ByteBuffer.allocateDirect(size);
+        directMessage.put(message).flip();
+        directOut = ByteBuffer.allocateDirect(size + MAC_BYTES);
+    }
+
+    @Benchmark
+    public byte[] encrypt(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.encrypt(nonce, message);
+    }
+
+    @Benchmark
+    public byte[] decrypt(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.decrypt(nonce, ciphertext);
+    }
+
+    @Benchmark
+    public int encryptIntoBuffer(BytesProcessed processed) {
+        processed.bytes += size;
+        return box.encrypt(nonce, message, 0, size, out, 0);
+    }
+
+    @Benchmark
+    public int encryptDirectBuffer(BytesProcessed processed) {
+        processed.bytes += size;
+        directMessage.rewind();
+        directOut.clear();
+        return box.encrypt(directNonce, directMessage, directOut);
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.keys.SigningKey;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import static org.abstractj.kalium.NaCl.Sodium.SIGNATURE_BYTES;
+
+public class SigningKeyBenchmark extends MessageBenchmark {
+
+    private SigningKey key;
+    private byte[] signature;
+
+    @Override
+    protected void prepare() {
+        key = new SigningKey();
+        signature = new byte[SIGNATURE_BYTES];
+    }
+
+    @Benchmark
+    public byte[] sign(BytesProcessed processed) {
+        processed.bytes += size;
+        return key.sign(message);
+    }
+
+    @Benchmark
+    public int signIntoBuffer(BytesProcessed processed) {
+        processed.bytes += size;
+        return key.sign(message, 0, size, signature, 0);
+    }
+}
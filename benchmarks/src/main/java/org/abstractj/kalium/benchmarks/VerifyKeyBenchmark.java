@@ -0,0 +1,40 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.benchmarks;
+
+import org.abstractj.kalium.keys.SigningKey;
+import org.abstractj.kalium.keys.VerifyKey;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class VerifyKeyBenchmark extends MessageBenchmark {
+
+    private VerifyKey key;
+    private byte[] signature;
+
+    @Override
+    protected void prepare() {
+        SigningKey signingKey = new SigningKey();
+        key = signingKey.getVerifyKey();
+        signature = signingKey.sign(message);
+    }
+
+    @Benchmark
+    public boolean verify(BytesProcessed processed) {
+        processed.bytes += size;
+        return key.verify(message, signature);
+    }
+}
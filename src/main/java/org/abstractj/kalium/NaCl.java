@@ -17,54 +17,135 @@
 package org.abstractj.kalium;
 
 import jnr.ffi.LibraryLoader;
+import jnr.ffi.Pointer;
 import jnr.ffi.annotations.In;
 import jnr.ffi.annotations.Out;
 import jnr.ffi.byref.LongLongByReference;
+import jnr.ffi.types.u_int32_t;
 import jnr.ffi.types.u_int64_t;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
 public class NaCl {
 
+    /**
+     * Returns the libsodium binding. The library is loaded, initialized with
+     * {@code sodium_init} and version checked exactly once, the first time
+     * this is called; afterwards this is a plain read of a final field.
+     * <p/>
+     * If the installed libsodium is too old, every call made through the
+     * returned binding throws {@link UnsupportedOperationException}.
+     */
     public static Sodium sodium() {
-        Sodium sodium = SingletonHolder.SODIUM_INSTANCE;
-        checkVersion(sodium);
-        return sodium;
+        return SingletonHolder.SODIUM_INSTANCE;
     }
 
-    private static final String LIBRARY_NAME = "sodium";
+    static final String LIBRARY_NAME = "sodium";
+
+    static final String[] LIBRARY_PATHS =
+            new String[] { "/usr/local/lib", "/opt/local/lib", "lib" };
+
+    /**
+     * System property selecting the native binding: {@code jnr} (the
+     * default) or {@code panama}, which uses the Foreign Function &amp; Memory
+     * API on JDK 22 and later and falls back to JNR elsewhere.
+     */
+    public static final String BACKEND_PROPERTY = "kalium.backend";
 
     private static final class SingletonHolder {
-        public static final Sodium SODIUM_INSTANCE =
-                LibraryLoader.create(Sodium.class)
-                        .search("/usr/local/lib")
-                        .search("/opt/local/lib")
-                        .search("lib")
-                        .load(LIBRARY_NAME);
+        private static final Sodium LIBRARY = load();
+        public static final Integer[] VERSION = parseVersion(LIBRARY.sodium_version_string());
+        public static final Sodium SODIUM_INSTANCE = initialize(LIBRARY);
+    }
 
+    private static Sodium load() {
+        if ("panama".equals(System.getProperty(BACKEND_PROPERTY)) && PanamaSodium.isAvailable()) {
+            return PanamaSodium.load();
+        }
+        LibraryLoader<Sodium> loader = LibraryLoader.create(Sodium.class);
+        for (String path : LIBRARY_PATHS) {
+            loader.search(path);
+        }
+        return loader.load(LIBRARY_NAME);
     }
 
     public static final Integer[] MIN_SUPPORTED_VERSION =
             new Integer[] { 1, 0, 3 };
 
-    private static boolean versionSupported = false;
+    /**
+     * Throws {@link UnsupportedOperationException} unless the installed
+     * libsodium is at least {@code major.minor.patch}. Used by features
+     * relying on functions newer than {@link #MIN_SUPPORTED_VERSION}.
+     */
+    public static void requireVersion(String feature, int major, int minor, int patch) {
+        Integer[] version = SingletonHolder.VERSION;
+        if (!isAtLeast(version, major, minor, patch)) {
+            throw new UnsupportedOperationException(String.format("%s requires libsodium %d.%d.%d or later, found %s",
+                    feature, major, minor, patch, SingletonHolder.LIBRARY.sodium_version_string()));
+        }
+    }
 
-    private static final void checkVersion(Sodium lib) {
-        if (!versionSupported) {
-            String[] version = lib.sodium_version_string().split("\\.");
-            versionSupported = version.length >= 3 &&
-                MIN_SUPPORTED_VERSION[0] <= new Integer(version[0]) &&
-                MIN_SUPPORTED_VERSION[1] <= new Integer(version[1]) &&
-                MIN_SUPPORTED_VERSION[2] <= new Integer(version[2]);
+    static Integer[] parseVersion(String versionString) {
+        String[] parts = versionString.split("\\.");
+        Integer[] version = new Integer[] { 0, 0, 0 };
+        try {
+            for (int i = 0; i < Math.min(parts.length, version.length); i++) {
+                version[i] = Integer.valueOf(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            return new Integer[] { 0, 0, 0 };
         }
-        if (!versionSupported) {
-            String message = String.format("Unsupported libsodium version: %s. Please update",
-                                        lib.sodium_version_string());
-            throw new UnsupportedOperationException(message);
+        return version;
+    }
+
+    static boolean isAtLeast(Integer[] version, int major, int minor, int patch) {
+        int[] required = new int[] { major, minor, patch };
+        for (int i = 0; i < required.length; i++) {
+            if (version[i] != required[i]) {
+                return version[i] > required[i];
+            }
         }
+        return true;
+    }
+
+    private static Sodium initialize(Sodium lib) {
+        if (!isSupported(lib.sodium_version_string())) {
+            return unsupported(String.format("Unsupported libsodium version: %s. Please update",
+                                        lib.sodium_version_string()));
+        }
+        if (lib.sodium_init() < 0) {
+            return unsupported("Failed to initialize libsodium");
+        }
+        return lib;
+    }
+
+    private static boolean isSupported(String versionString) {
+        return versionString.split("\\.").length >= 3 && isAtLeast(parseVersion(versionString),
+                MIN_SUPPORTED_VERSION[0], MIN_SUPPORTED_VERSION[1], MIN_SUPPORTED_VERSION[2]);
+    }
+
+    private static Sodium unsupported(final String message) {
+        return (Sodium) Proxy.newProxyInstance(Sodium.class.getClassLoader(),
+                new Class<?>[] { Sodium.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        throw new UnsupportedOperationException(message);
+                    }
+                });
     }
 
     private NaCl() {
     }
 
+    /**
+     * Functions taking {@code ByteBuffer} arguments are meant for heap
+     * buffers wrapping a region of a larger array: libsodium reads and writes
+     * from each buffer's position, so callers can work on array slices.
+     * Direct buffers are passed as {@code Pointer}s instead.
+     */
     public interface Sodium {
 
         /**
@@ -82,6 +163,20 @@ public class NaCl {
 
         void randombytes(@Out byte[] buffer, @In @u_int64_t int size);
 
+        void randombytes_buf(@Out byte[] buffer, @In @u_int64_t int size);
+
+        void randombytes_buf(@Out ByteBuffer buffer, @In @u_int64_t int size);
+
+        void randombytes_buf(@Out Pointer buffer, @In @u_int64_t int size);
+
+        int RANDOMBYTES_SEEDBYTES = 32;
+
+        @u_int32_t int randombytes_random();
+
+        @u_int32_t int randombytes_uniform(@In @u_int32_t int upperBound);
+
+        void randombytes_buf_deterministic(@Out byte[] buffer, @In @u_int64_t int size, @In byte[] seed);
+
         // ---------------------------------------------------------------------
         // Secret-key cryptography: Authenticated encryption
 
@@ -96,6 +191,38 @@ public class NaCl {
                 @Out byte[] message, @In byte[] ct, @In @u_int64_t int length,
                 @In byte[] nonce, @In byte[] key);
 
+        int crypto_secretbox_easy(
+                @Out byte[] ct, @In byte[] msg, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] key);
+
+        int crypto_secretbox_open_easy(
+                @Out byte[] message, @In byte[] ct, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] key);
+
+        int crypto_secretbox_detached(
+                @Out byte[] ct, @Out byte[] mac, @In byte[] msg,
+                @In @u_int64_t int length, @In byte[] nonce, @In byte[] key);
+
+        int crypto_secretbox_open_detached(
+                @Out byte[] message, @In byte[] ct, @In byte[] mac,
+                @In @u_int64_t int length, @In byte[] nonce, @In byte[] key);
+
+        int crypto_secretbox_easy(
+                @Out ByteBuffer ct, @In ByteBuffer msg, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] key);
+
+        int crypto_secretbox_open_easy(
+                @Out ByteBuffer message, @In ByteBuffer ct, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] key);
+
+        int crypto_secretbox_easy(
+                @Out Pointer ct, @In Pointer msg, @In @u_int64_t int length,
+                @In Pointer nonce, @In byte[] key);
+
+        int crypto_secretbox_open_easy(
+                @Out Pointer message, @In Pointer ct, @In @u_int64_t int length,
+                @In Pointer nonce, @In byte[] key);
+
         // ---------------------------------------------------------------------
         // Secret-key cryptography: Authentication
 
@@ -111,6 +238,14 @@ public class NaCl {
                 @In byte[] mac, @In byte[] message, @In @u_int64_t int sizeof,
                 @In byte[] key);
 
+        int crypto_auth_hmacsha512256(
+                @Out ByteBuffer mac, @In ByteBuffer message,
+                @In @u_int64_t int sizeof, @In byte[] key);
+
+        int crypto_auth_hmacsha512256_verify(
+                @In ByteBuffer mac, @In ByteBuffer message,
+                @In @u_int64_t int sizeof, @In byte[] key);
+
         // ---------------------------------------------------------------------
         // Secret-key cryptography: AEAD
 
@@ -152,6 +287,32 @@ public class NaCl {
                 @Out byte[] message, @In byte[] ct, @In @u_int64_t int length,
                 @In byte[] nonce, @In byte[] shared);
 
+        int crypto_box_easy_afternm(
+                @Out byte[] ct, @In byte[] msg, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] shared);
+
+        int crypto_box_open_easy_afternm(
+                @Out byte[] message, @In byte[] ct, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] shared);
+
+        int crypto_box_detached_afternm(
+                @Out byte[] ct, @Out byte[] mac, @In byte[] msg,
+                @In @u_int64_t int length, @In byte[] nonce,
+                @In byte[] shared);
+
+        int crypto_box_open_detached_afternm(
+                @Out byte[] message, @In byte[] ct, @In byte[] mac,
+                @In @u_int64_t int length, @In byte[] nonce,
+                @In byte[] shared);
+
+        int crypto_box_easy_afternm(
+                @Out ByteBuffer ct, @In ByteBuffer msg, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] shared);
+
+        int crypto_box_open_easy_afternm(
+                @Out ByteBuffer message, @In ByteBuffer ct, @In @u_int64_t int length,
+                @In byte[] nonce, @In byte[] shared);
+
         // ---------------------------------------------------------------------
         // Public-key cryptography: Public-key signatures
 
@@ -170,6 +331,36 @@ public class NaCl {
                 @In byte[] sigAndMsg, @In @u_int64_t int length,
                 @In byte[] key);
 
+        int crypto_sign_ed25519_verify_detached(
+                @In byte[] signature, @In byte[] message,
+                @In @u_int64_t int length, @In byte[] key);
+
+        int crypto_sign_ed25519_verify_detached(
+                @In ByteBuffer signature, @In ByteBuffer message,
+                @In @u_int64_t int length, @In byte[] key);
+
+        int crypto_sign_ed25519_verify_detached(
+                @In Pointer signature, @In Pointer message,
+                @In @u_int64_t int length, @In byte[] key);
+
+        int crypto_sign_ed25519_verify_detached(
+                @In Pointer signature, @In ByteBuffer message,
+                @In @u_int64_t int length, @In byte[] key);
+
+        int crypto_sign_ed25519_verify_detached(
+                @In ByteBuffer signature, @In Pointer message,
+                @In @u_int64_t int length, @In byte[] key);
+
+        int crypto_sign_ed25519_detached(
+                @Out byte[] signature, @Out LongLongByReference signatureLen,
+                @In byte[] message, @In @u_int64_t int length,
+                @In byte[] secretKey);
+
+        int crypto_sign_ed25519_detached(
+                @Out ByteBuffer signature, @Out LongLongByReference signatureLen,
+                @In ByteBuffer message, @In @u_int64_t int length,
+                @In byte[] secretKey);
+
         // ---------------------------------------------------------------------
         // Public-key cryptography: Sealed boxes
 
@@ -181,6 +372,15 @@ public class NaCl {
                 @Out byte[] message, @In byte[] c, @In @u_int64_t int length,
                 @In byte[] publicKey, @In byte[] privateKey);
 
+        int crypto_box_seal(
+                @Out ByteBuffer ct, @In ByteBuffer message,
+                @In @u_int64_t int length, @In byte[] publicKey);
+
+        int crypto_box_seal_open(
+                @Out ByteBuffer message, @In ByteBuffer c,
+                @In @u_int64_t int length, @In byte[] publicKey,
+                @In byte[] privateKey);
+
         // ---------------------------------------------------------------------
         // Hashing: Generic hashing
 
@@ -191,12 +391,61 @@ public class NaCl {
                 @In byte[] message, @u_int64_t int messageLen, @In byte[] key,
                 @In @u_int64_t int keyLen);
 
+        int crypto_generichash_blake2b(
+                @Out ByteBuffer buffer, @In @u_int64_t int outLen,
+                @In ByteBuffer message, @u_int64_t int messageLen,
+                @In byte[] key, @In @u_int64_t int keyLen);
+
         int crypto_generichash_blake2b_salt_personal(
                 @Out byte[] buffer, @In @u_int64_t int outLen,
                 @In byte[] message, @u_int64_t int messageLen, @In byte[] key,
                 @In @u_int64_t int keyLen, @In byte[] salt,
                 @In byte[] personal);
 
+        int crypto_generichash_blake2b_salt_personal(
+                @Out byte[] buffer, @In @u_int64_t int outLen,
+                @In ByteBuffer message, @u_int64_t int messageLen,
+                @In byte[] key, @In @u_int64_t int keyLen, @In byte[] salt,
+                @In byte[] personal);
+
+        int crypto_generichash_blake2b_salt_personal(
+                @Out byte[] buffer, @In @u_int64_t int outLen,
+                @In Pointer message, @u_int64_t int messageLen,
+                @In byte[] key, @In @u_int64_t int keyLen, @In byte[] salt,
+                @In byte[] personal);
+
+        int BLAKE2B_BYTES_MIN = 16;
+        int BLAKE2B_BYTES_MAX = 64;
+        int BLAKE2B_KEYBYTES_MIN = 16;
+        int BLAKE2B_KEYBYTES_MAX = 64;
+
+        /**
+         * Hash states must be 64-byte aligned on older libsodium releases.
+         */
+        int HASH_STATE_ALIGNMENT = 64;
+
+        @u_int64_t long crypto_generichash_statebytes();
+
+        int crypto_generichash_init(
+                Pointer state, @In byte[] key, @In @u_int64_t int keyLen,
+                @In @u_int64_t int outLen);
+
+        int crypto_generichash_update(
+                Pointer state, @In byte[] message,
+                @In @u_int64_t int messageLen);
+
+        int crypto_generichash_update(
+                Pointer state, @In ByteBuffer message,
+                @In @u_int64_t int messageLen);
+
+        int crypto_generichash_update(
+                Pointer state, @In Pointer message,
+                @In @u_int64_t int messageLen);
+
+        int crypto_generichash_final(
+                Pointer state, @Out ByteBuffer buffer,
+                @In @u_int64_t int outLen);
+
         // ---------------------------------------------------------------------
         // Hashing: Short-input hashing
 
@@ -209,6 +458,8 @@ public class NaCl {
         int PWHASH_SCRYPTSALSA208SHA256_OUTBYTES = 64;
         int PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_INTERACTIVE = 524288;
         int PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE = 16777216;
+        int PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN = 32768;
+        int PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN = 16777216;
 
         int crypto_pwhash_scryptsalsa208sha256(
                 @Out byte[] buffer, @In @u_int64_t int outlen,
@@ -225,6 +476,39 @@ public class NaCl {
                 @In byte[] buffer, @In byte[] passwd,
                 @In @u_int64_t int passwdlen);
 
+        int PWHASH_ALG_ARGON2I13 = 1;
+        int PWHASH_ALG_ARGON2ID13 = 2;
+        int PWHASH_SALTBYTES = 16;
+        int PWHASH_STRBYTES = 128;
+        int PWHASH_BYTES_MIN = 16;
+        int PWHASH_ARGON2ID_OPSLIMIT_MIN = 1;
+        int PWHASH_ARGON2ID_MEMLIMIT_MIN = 8192;
+        int PWHASH_ARGON2ID_OPSLIMIT_INTERACTIVE = 2;
+        int PWHASH_ARGON2ID_MEMLIMIT_INTERACTIVE = 67108864;
+        int PWHASH_ARGON2ID_OPSLIMIT_MODERATE = 3;
+        int PWHASH_ARGON2ID_MEMLIMIT_MODERATE = 268435456;
+        int PWHASH_ARGON2ID_OPSLIMIT_SENSITIVE = 4;
+        int PWHASH_ARGON2ID_MEMLIMIT_SENSITIVE = 1073741824;
+
+        int crypto_pwhash(
+                @Out byte[] buffer, @In @u_int64_t int outlen,
+                @In byte[] passwd, @In @u_int64_t int passwdlen,
+                @In byte[] salt, @In @u_int64_t long opslimit,
+                @In @u_int64_t long memlimit, @In int alg);
+
+        int crypto_pwhash_str(
+                @Out byte[] buffer, @In byte[] passwd,
+                @In @u_int64_t int passwdlen, @In @u_int64_t long opslimit,
+                @In @u_int64_t long memlimit);
+
+        int crypto_pwhash_str_verify(
+                @In byte[] buffer, @In byte[] passwd,
+                @In @u_int64_t int passwdlen);
+
+        int crypto_pwhash_str_needs_rehash(
+                @In byte[] buffer, @In @u_int64_t long opslimit,
+                @In @u_int64_t long memlimit);
+
         // ---------------------------------------------------------------------
         // Advanced: AES256-GCM
 
@@ -239,12 +523,52 @@ public class NaCl {
                 @Out byte[] buffer, @In byte[] message,
                 @In @u_int64_t int sizeof);
 
+        int crypto_hash_sha256(
+                @Out ByteBuffer buffer, @In ByteBuffer message,
+                @In @u_int64_t int sizeof);
+
+        @u_int64_t long crypto_hash_sha256_statebytes();
+
+        int crypto_hash_sha256_init(Pointer state);
+
+        int crypto_hash_sha256_update(
+                Pointer state, @In byte[] message, @In @u_int64_t int sizeof);
+
+        int crypto_hash_sha256_update(
+                Pointer state, @In ByteBuffer message,
+                @In @u_int64_t int sizeof);
+
+        int crypto_hash_sha256_update(
+                Pointer state, @In Pointer message, @In @u_int64_t int sizeof);
+
+        int crypto_hash_sha256_final(Pointer state, @Out ByteBuffer buffer);
+
         int SHA512BYTES = 64;
 
         int crypto_hash_sha512(
                 @Out byte[] buffer, @In byte[] message,
                 @In @u_int64_t int sizeof);
 
+        int crypto_hash_sha512(
+                @Out ByteBuffer buffer, @In ByteBuffer message,
+                @In @u_int64_t int sizeof);
+
+        @u_int64_t long crypto_hash_sha512_statebytes();
+
+        int crypto_hash_sha512_init(Pointer state);
+
+        int crypto_hash_sha512_update(
+                Pointer state, @In byte[] message, @In @u_int64_t int sizeof);
+
+        int crypto_hash_sha512_update(
+                Pointer state, @In ByteBuffer message,
+                @In @u_int64_t int sizeof);
+
+        int crypto_hash_sha512_update(
+                Pointer state, @In Pointer message, @In @u_int64_t int sizeof);
+
+        int crypto_hash_sha512_final(Pointer state, @Out ByteBuffer buffer);
+
         // ---------------------------------------------------------------------
         // Advanced: HMAC-SHA-2
 
@@ -266,7 +590,12 @@ public class NaCl {
         // ---------------------------------------------------------------------
         // Advanced: Stream ciphers: ChaCha20
 
-        // TODO
+        int CHACHA20_IETF_KEYBYTES = 32;
+        int CHACHA20_IETF_NONCEBYTES = 12;
+
+        int crypto_stream_chacha20_ietf_xor_ic(
+                @Out byte[] ciphertext, @In byte[] message, @In @u_int64_t int length,
+                @In byte[] nonce, @In @u_int32_t int counter, @In byte[] key);
 
         // ---------------------------------------------------------------------
         // Advanced: Stream ciphers: Salsa20
@@ -284,12 +613,13 @@ public class NaCl {
     }
 
     /**
-     * This is a Java synchronized wrapper around libsodium's init function.
-     * LibSodium's init function is not thread-safe.
+     * Initializes libsodium. Calling this is optional: {@link #sodium()}
+     * already runs {@code sodium_init} once, before the binding is published,
+     * so this simply returns 1 ("already initialized").
      *
      * Check libsodium's documentation for more info.
      */
-    public static synchronized int init() {
+    public static int init() {
         return sodium().sodium_init();
     }
 }
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium;
+
+/**
+ * Binding of {@link NaCl.Sodium} through the Foreign Function &amp; Memory API,
+ * selected with {@link NaCl#BACKEND_PROPERTY}.
+ * <p/>
+ * This is the portable version, which is never available. Multi-release
+ * JARs built on JDK 22 replace it with the real binding.
+ */
+final class PanamaSodium {
+
+    private PanamaSodium() {
+    }
+
+    static boolean isAvailable() {
+        return false;
+    }
+
+    static NaCl.Sodium load() {
+        throw new UnsupportedOperationException("The panama backend requires JDK 22 or later");
+    }
+}
@@ -18,34 +18,39 @@ package org.abstractj.kalium.crypto;
 
 import org.abstractj.kalium.NaCl;
 import org.abstractj.kalium.encoders.Encoder;
+import org.abstractj.kalium.keys.KeyPair;
 import org.abstractj.kalium.keys.PrivateKey;
 import org.abstractj.kalium.keys.PublicKey;
 
-import static org.abstractj.kalium.NaCl.Sodium.BOXZERO_BYTES;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import static org.abstractj.kalium.NaCl.Sodium.MAC_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.NONCE_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.PUBLICKEY_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.SECRETKEY_BYTES;
-import static org.abstractj.kalium.NaCl.Sodium.ZERO_BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.checkCiphertext;
 import static org.abstractj.kalium.crypto.Util.checkLength;
 import static org.abstractj.kalium.crypto.Util.isValid;
-import static org.abstractj.kalium.crypto.Util.prependZeros;
-import static org.abstractj.kalium.crypto.Util.removeZeros;
+import static org.abstractj.kalium.crypto.Util.runAll;
 
 /**
  * Based on Curve25519XSalsa20Poly1305 and Box classes from rbnacl
  */
 public class Box {
 
+    private static final int PRECOMPUTE_BATCH_SIZE = 128;
+
     private final byte[] sharedKey;
 
     public Box(byte[] publicKey, byte[] privateKey) {
-        checkLength(publicKey, PUBLICKEY_BYTES);
-        checkLength(privateKey, SECRETKEY_BYTES);
-
-        sharedKey = new byte[NaCl.Sodium.BEFORENMBYTES];
-        isValid(sodium().crypto_box_curve25519xsalsa20poly1305_beforenm(
-                sharedKey, publicKey, privateKey), "Key agreement failed");
+        sharedKey = sharedKey(publicKey, privateKey);
     }
 
     public Box(PublicKey publicKey, PrivateKey privateKey) {
@@ -56,13 +61,88 @@ public class Box {
         this(encoder.decode(publicKey), encoder.decode(privateKey));
     }
 
+    private Box(byte[] sharedKey) {
+        checkLength(sharedKey, NaCl.Sodium.BEFORENMBYTES);
+        this.sharedKey = sharedKey.clone();
+    }
+
+    /**
+     * Creates a box from a shared key previously returned by
+     * {@link #getSharedKey()}, skipping the key agreement. The key is copied.
+     */
+    public static Box fromSharedKey(byte[] sharedKey) {
+        return new Box(sharedKey);
+    }
+
+    /**
+     * Returns a copy of the precomputed shared key. It is as sensitive as
+     * the private key it was derived from.
+     */
+    public byte[] getSharedKey() {
+        return sharedKey.clone();
+    }
+
+    static byte[] sharedKey(byte[] publicKey, byte[] privateKey) {
+        checkLength(publicKey, PUBLICKEY_BYTES);
+        checkLength(privateKey, SECRETKEY_BYTES);
+
+        byte[] sharedKey = new byte[NaCl.Sodium.BEFORENMBYTES];
+        isValid(sodium().crypto_box_curve25519xsalsa20poly1305_beforenm(
+                sharedKey, publicKey, privateKey), "Key agreement failed");
+        return sharedKey;
+    }
+
+    /**
+     * Computes the shared keys between {@code privateKey} and every peer,
+     * splitting the peers into batches that run concurrently on the given
+     * executor, or on the calling thread if it is {@code null}.
+     */
+    public static SharedKeyTable precomputeAll(PrivateKey privateKey, Collection<PublicKey> peers,
+                                               ExecutorService executor) {
+        final byte[] secretKey = privateKey.toBytes();
+        checkLength(secretKey, SECRETKEY_BYTES);
+        final SharedKeyTable table = new SharedKeyTable(new KeyPair(secretKey).getPublicKey());
+        final List<PublicKey> keys = new ArrayList<PublicKey>(peers);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < keys.size(); start += PRECOMPUTE_BATCH_SIZE) {
+            final int from = start;
+            final int to = Math.min(start + PRECOMPUTE_BATCH_SIZE, keys.size());
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    byte[] sharedKey = new byte[NaCl.Sodium.BEFORENMBYTES];
+                    try {
+                        for (int i = from; i < to; i++) {
+                            byte[] peer = keys.get(i).toBytes();
+                            checkLength(peer, PUBLICKEY_BYTES);
+                            isValid(sodium().crypto_box_curve25519xsalsa20poly1305_beforenm(
+                                    sharedKey, peer, secretKey), "Key agreement failed");
+                            table.put(peer, sharedKey);
+                        }
+                    } finally {
+                        Arrays.fill(sharedKey, (byte) 0);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            runAll(tasks, executor, "Key agreement");
+        } catch (RuntimeException e) {
+            table.clear();
+            throw e;
+        }
+        return table;
+    }
+
     public byte[] encrypt(byte[] nonce, byte[] message) {
         checkLength(nonce, NONCE_BYTES);
-        byte[] msg = prependZeros(ZERO_BYTES, message);
-        byte[] ct = new byte[msg.length];
-        isValid(sodium().crypto_box_curve25519xsalsa20poly1305_afternm(ct, msg,
-                msg.length, nonce, sharedKey), "Encryption failed");
-        return removeZeros(BOXZERO_BYTES, ct);
+        byte[] ct = new byte[message.length + MAC_BYTES];
+        isValid(sodium().crypto_box_easy_afternm(ct, message,
+                message.length, nonce, sharedKey), "Encryption failed");
+        return ct;
     }
 
     public byte[] encrypt(String nonce, String message, Encoder encoder) {
@@ -71,15 +151,88 @@ public class Box {
 
     public byte[] decrypt(byte[] nonce, byte[] ciphertext) {
         checkLength(nonce, NONCE_BYTES);
-        byte[] ct = prependZeros(BOXZERO_BYTES, ciphertext);
-        byte[] message = new byte[ct.length];
-        isValid(sodium().crypto_box_curve25519xsalsa20poly1305_open_afternm(
-                        message, ct, message.length, nonce, sharedKey),
+        checkCiphertext(ciphertext);
+        byte[] message = new byte[ciphertext.length - MAC_BYTES];
+        isValid(sodium().crypto_box_open_easy_afternm(
+                        message, ciphertext, ciphertext.length, nonce, sharedKey),
                 "Decryption failed. Ciphertext failed verification.");
-        return removeZeros(ZERO_BYTES, message);
+        return message;
     }
 
     public byte[] decrypt(String nonce, String ciphertext, Encoder encoder) {
         return decrypt(encoder.decode(nonce), encoder.decode(ciphertext));
     }
+
+    /**
+     * Encrypts {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the ciphertext into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code inLen + MAC_BYTES}
+     */
+    public int encrypt(byte[] nonce, byte[] in, int inOff, int inLen,
+                       byte[] out, int outOff) {
+        checkLength(nonce, NONCE_BYTES);
+        int ctLength = inLen + MAC_BYTES;
+        ByteBuffer ct = ByteBuffer.wrap(out, outOff, ctLength);
+        ByteBuffer msg = ByteBuffer.wrap(in, inOff, inLen);
+        isValid(sodium().crypto_box_easy_afternm(ct, msg, inLen, nonce,
+                sharedKey), "Encryption failed");
+        return ctLength;
+    }
+
+    /**
+     * Decrypts {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the message into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code inLen - MAC_BYTES}
+     */
+    public int decrypt(byte[] nonce, byte[] in, int inOff, int inLen,
+                       byte[] out, int outOff) {
+        checkLength(nonce, NONCE_BYTES);
+        if (inLen < MAC_BYTES)
+            throw new RuntimeException("Invalid size");
+        int messageLength = inLen - MAC_BYTES;
+        ByteBuffer message = ByteBuffer.wrap(out, outOff, messageLength);
+        ByteBuffer ct = ByteBuffer.wrap(in, inOff, inLen);
+        isValid(sodium().crypto_box_open_easy_afternm(
+                        message, ct, inLen, nonce, sharedKey),
+                "Decryption failed. Ciphertext failed verification.");
+        return messageLength;
+    }
+
+    /**
+     * Encrypts a message, writing the authentication tag into {@code mac}
+     * instead of prepending it to the ciphertext.
+     *
+     * @param nonce   nonce of {@code NONCE_BYTES}
+     * @param message message to encrypt
+     * @param mac     output buffer of {@code MAC_BYTES} for the authentication tag
+     * @return the ciphertext, the same length as the message
+     */
+    public byte[] encryptDetached(byte[] nonce, byte[] message, byte[] mac) {
+        checkLength(nonce, NONCE_BYTES);
+        checkLength(mac, MAC_BYTES);
+        byte[] ct = new byte[message.length];
+        isValid(sodium().crypto_box_detached_afternm(ct, mac, message,
+                message.length, nonce, sharedKey), "Encryption failed");
+        return ct;
+    }
+
+    /**
+     * Decrypts a ciphertext produced by {@link #encryptDetached}.
+     *
+     * @param nonce      nonce of {@code NONCE_BYTES}
+     * @param ciphertext ciphertext without the authentication tag
+     * @param mac        authentication tag of {@code MAC_BYTES}
+     * @return the decrypted message
+     */
+    public byte[] decryptDetached(byte[] nonce, byte[] ciphertext, byte[] mac) {
+        checkLength(nonce, NONCE_BYTES);
+        checkLength(mac, MAC_BYTES);
+        byte[] message = new byte[ciphertext.length];
+        isValid(sodium().crypto_box_open_detached_afternm(
+                        message, ciphertext, mac, ciphertext.length, nonce, sharedKey),
+                "Decryption failed. Ciphertext failed verification.");
+        return message;
+    }
 }
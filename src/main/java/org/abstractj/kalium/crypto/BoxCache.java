@@ -0,0 +1,254 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.abstractj.kalium.keys.PrivateKey;
+import org.abstractj.kalium.keys.PublicKey;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.abstractj.kalium.NaCl.Sodium.PUBLICKEY_BYTES;
+import static org.abstractj.kalium.NaCl.Sodium.SECRETKEY_BYTES;
+import static org.abstractj.kalium.crypto.Util.checkLength;
+
+/**
+ * Bounded cache of shared keys between a fixed local private key and its
+ * peers, so repeated peers skip the X25519 key agreement.
+ * <p/>
+ * Entries are spread over independently locked LRU segments by peer key,
+ * each holding its share of the maximum size and at least
+ * {@value #MIN_SEGMENT_SIZE} entries, so small caches use fewer segments.
+ * Eviction is per segment, so it can start shortly before the cache as a
+ * whole is full. An entry is evicted when its segment is
+ * full or, if a time to live is configured, once it has been cached for
+ * longer than that. Evicted shared keys are zeroed. Every lookup returns a
+ * new {@link Box} holding its own copy of the shared key, so eviction never
+ * affects boxes already handed out.
+ */
+public class BoxCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 8;
+    // Entries examined at the LRU end of a segment on each insert
+    private static final int PURGE_STEPS = 4;
+
+    private final byte[] privateKey;
+    private final long ttlNanos;
+    private final Segment[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoxCache(PrivateKey privateKey, int maximumSize) {
+        this(privateKey, maximumSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param privateKey  local private key shared by every cached box
+     * @param maximumSize maximum number of cached peers
+     * @param ttl         how long a shared key stays cached, or {@code 0} to
+     *                    keep it until it is evicted by size
+     * @param unit        unit of {@code ttl}
+     */
+    public BoxCache(PrivateKey privateKey, int maximumSize, long ttl, TimeUnit unit) {
+        if (maximumSize <= 0)
+            throw new RuntimeException("Invalid cache size");
+        if (ttl < 0)
+            throw new RuntimeException("Invalid time to live");
+        checkLength(privateKey.toBytes(), SECRETKEY_BYTES);
+        this.privateKey = privateKey.toBytes().clone();
+        this.ttlNanos = unit.toNanos(ttl);
+
+        int count = Math.max(1, Math.min(MAX_SEGMENTS, maximumSize / MIN_SEGMENT_SIZE));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            int capacity = maximumSize / count + (i < maximumSize % count ? 1 : 0);
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    public Box get(PublicKey peer) {
+        return get(peer.toBytes());
+    }
+
+    /**
+     * Returns a box for the given peer, computing and caching the shared key
+     * if it is not cached yet.
+     */
+    public Box get(byte[] peer) {
+        checkLength(peer, PUBLICKEY_BYTES);
+        ByteBuffer id = ByteBuffer.wrap(peer.clone());
+        Segment segment = segmentFor(id);
+
+        Box box = segment.lookup(id);
+        if (box != null) {
+            hits.incrementAndGet();
+            return box;
+        }
+        misses.incrementAndGet();
+        // The key agreement runs outside the segment lock so that other
+        // peers of the same segment are not blocked behind it.
+        return segment.insert(id, Box.sharedKey(peer, privateKey));
+    }
+
+    public void invalidate(PublicKey peer) {
+        ByteBuffer id = ByteBuffer.wrap(peer.toBytes());
+        segmentFor(id).remove(id);
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    private Segment segmentFor(ByteBuffer id) {
+        int hash = id.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private boolean expired(Entry entry, long now) {
+        return ttlNanos > 0 && now - entry.created >= ttlNanos;
+    }
+
+    private static class Entry {
+
+        private final byte[] sharedKey;
+        private final long created;
+
+        private Entry(byte[] sharedKey, long created) {
+            this.sharedKey = sharedKey;
+            this.created = created;
+        }
+
+        private void destroy() {
+            Arrays.fill(sharedKey, (byte) 0);
+        }
+    }
+
+    private class Segment {
+
+        private final LinkedHashMap<ByteBuffer, Entry> entries;
+
+        private Segment(final int capacity) {
+            this.entries = new LinkedHashMap<ByteBuffer, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+                    if (size() <= capacity)
+                        return false;
+                    evict(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        private synchronized Box lookup(ByteBuffer id) {
+            Entry entry = entries.get(id);
+            if (entry == null)
+                return null;
+            if (expired(entry, System.nanoTime())) {
+                entries.remove(id);
+                evict(entry);
+                return null;
+            }
+            return Box.fromSharedKey(entry.sharedKey);
+        }
+
+        private synchronized Box insert(ByteBuffer id, byte[] sharedKey) {
+            long now = System.nanoTime();
+            Entry entry = entries.get(id);
+            if (entry != null && !expired(entry, now)) {
+                // Another thread cached this peer first
+                Arrays.fill(sharedKey, (byte) 0);
+                return Box.fromSharedKey(entry.sharedKey);
+            }
+            if (entry != null)
+                evict(entry);
+            entries.put(id, new Entry(sharedKey, now));
+            purgeExpired(now);
+            return Box.fromSharedKey(sharedKey);
+        }
+
+        /**
+         * Drops expired entries from the least recently used end, a few at a
+         * time, so no insert has to scan the whole segment. Expired entries
+         * that are looked up are dropped by {@link #lookup}.
+         */
+        private void purgeExpired(long now) {
+            if (ttlNanos == 0)
+                return;
+            Iterator<Entry> it = entries.values().iterator();
+            for (int i = 0; i < PURGE_STEPS && it.hasNext(); i++) {
+                Entry entry = it.next();
+                if (!expired(entry, now))
+                    return;
+                it.remove();
+                evict(entry);
+            }
+        }
+
+        private synchronized void remove(ByteBuffer id) {
+            Entry entry = entries.remove(id);
+            if (entry != null)
+                entry.destroy();
+        }
+
+        private synchronized void clear() {
+            for (Entry entry : entries.values()) {
+                entry.destroy();
+            }
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private void evict(Entry entry) {
+            entry.destroy();
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.abstractj.kalium.NaCl.Sodium.RANDOMBYTES_SEEDBYTES;
+import static org.abstractj.kalium.NaCl.requireVersion;
+import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.checkLength;
+import static org.abstractj.kalium.crypto.Util.isValid;
+import static org.abstractj.kalium.encoders.Encoder.RAW;
+
+/**
+ * Reproducible stream of pseudo-random bytes derived from a seed, for test
+ * data and simulations. It must not be used for keys or nonces.
+ * <p/>
+ * The stream is the one produced by {@code randombytes_buf_deterministic}:
+ * the ChaCha20 (IETF) keystream keyed by the seed, with the nonce
+ * {@code "LibsodiumDRG"}. Since the keystream can be computed from any
+ * block counter, the stream can be read in pieces or repositioned with
+ * {@link #seek(long)}. It is limited to 2<sup>38</sup> bytes (256 GiB).
+ */
+public class DeterministicRandom {
+
+    public static final long MAX_LENGTH = 64L << 32;
+
+    private static final byte[] NONCE = RAW.decode("LibsodiumDRG");
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final byte[] seed;
+    private final byte[] zeros = new byte[BLOCK_SIZE];
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private long blockStart = -1;
+    private long position;
+
+    public DeterministicRandom(byte[] seed) {
+        requireDeterministic();
+        checkLength(seed, RANDOMBYTES_SEEDBYTES);
+        this.seed = seed.clone();
+    }
+
+    /**
+     * Returns the first {@code n} bytes of the stream for {@code seed}.
+     * Needs libsodium 1.0.12 or later.
+     */
+    public static byte[] bytes(byte[] seed, int n) {
+        requireDeterministic();
+        checkLength(seed, RANDOMBYTES_SEEDBYTES);
+        byte[] buffer = new byte[n];
+        sodium().randombytes_buf_deterministic(buffer, n, seed);
+        return buffer;
+    }
+
+    // The stream matches randombytes_buf_deterministic, added in 1.0.12
+    private static void requireDeterministic() {
+        requireVersion("Deterministic random streams", 1, 0, 12);
+    }
+
+    public byte[] nextBytes(int n) {
+        byte[] buffer = new byte[n];
+        nextBytes(buffer, 0, n);
+        return buffer;
+    }
+
+    public void nextBytes(byte[] out, int off, int len) {
+        if (off < 0 || len < 0 || off > out.length - len)
+            throw new RuntimeException("Invalid size");
+        if (len > MAX_LENGTH - position)
+            throw new RuntimeException("Deterministic stream exhausted");
+        while (len > 0) {
+            long start = position - position % BLOCK_SIZE;
+            if (start != blockStart)
+                generate(start);
+            int offset = (int) (position - start);
+            int count = Math.min(len, BLOCK_SIZE - offset);
+            System.arraycopy(block, offset, out, off, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Writes the next {@code length} bytes of the stream to {@code out}.
+     */
+    public void writeTo(OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[BLOCK_SIZE];
+        while (length > 0) {
+            int count = (int) Math.min(length, BLOCK_SIZE);
+            nextBytes(buffer, 0, count);
+            out.write(buffer, 0, count);
+            length -= count;
+        }
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public void seek(long position) {
+        if (position < 0 || position > MAX_LENGTH)
+            throw new RuntimeException("Invalid position");
+        this.position = position;
+    }
+
+    private void generate(long start) {
+        // ChaCha20 produces 64 bytes per counter value; the cast keeps the
+        // unsigned 32-bit counter
+        int counter = (int) (start / 64);
+        isValid(sodium().crypto_stream_chacha20_ietf_xor_ic(block, zeros, BLOCK_SIZE, NONCE, counter, seed),
+                "Random generation failed");
+        blockStart = start;
+    }
+}
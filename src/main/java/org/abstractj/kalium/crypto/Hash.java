@@ -16,12 +16,34 @@
 
 package org.abstractj.kalium.crypto;
 
+import jnr.ffi.Pointer;
 import org.abstractj.kalium.encoders.Encoder;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_BYTES_MAX;
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_BYTES_MIN;
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_KEYBYTES_MAX;
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_KEYBYTES_MIN;
 import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_OUTBYTES;
+import static org.abstractj.kalium.NaCl.Sodium.HASH_STATE_ALIGNMENT;
 import static org.abstractj.kalium.NaCl.Sodium.SHA256BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.SHA512BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.allocateAligned;
+import static org.abstractj.kalium.crypto.Util.isValid;
+import static org.abstractj.kalium.crypto.Util.pointer;
 
 public class Hash {
 
@@ -37,6 +59,52 @@ public class Hash {
         return buffer;
     }
 
+    /**
+     * Hashes {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the digest into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code SHA256BYTES}
+     */
+    public int sha256(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        sodium().crypto_hash_sha256(ByteBuffer.wrap(out, outOff, SHA256BYTES),
+                ByteBuffer.wrap(in, inOff, inLen), inLen);
+        return SHA256BYTES;
+    }
+
+    /**
+     * Hashes {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the digest into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code SHA512BYTES}
+     */
+    public int sha512(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        sodium().crypto_hash_sha512(ByteBuffer.wrap(out, outOff, SHA512BYTES),
+                ByteBuffer.wrap(in, inOff, inLen), inLen);
+        return SHA512BYTES;
+    }
+
+    /**
+     * Hashes a file without copying it to the heap.
+     *
+     * @see DigestState#update(File)
+     */
+    public byte[] sha256(File file) throws IOException {
+        DigestState state = new Sha256State();
+        state.update(file);
+        return state.digest();
+    }
+
+    /**
+     * Hashes a file without copying it to the heap.
+     *
+     * @see DigestState#update(File)
+     */
+    public byte[] sha512(File file) throws IOException {
+        DigestState state = new Sha512State();
+        state.update(file);
+        return state.digest();
+    }
+
     public String sha256(String message, Encoder encoder) {
         byte[] hash = sha256(message.getBytes());
         return encoder.encode(hash);
@@ -54,6 +122,29 @@ public class Hash {
         return buffer;
     }
 
+    /**
+     * Hashes {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the digest into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code BLAKE2B_OUTBYTES}
+     */
+    public int blake2(byte[] in, int inOff, int inLen, byte[] out, int outOff) throws UnsupportedOperationException {
+        sodium().crypto_generichash_blake2b(ByteBuffer.wrap(out, outOff, BLAKE2B_OUTBYTES), BLAKE2B_OUTBYTES,
+                                            ByteBuffer.wrap(in, inOff, inLen), inLen, null, 0);
+        return BLAKE2B_OUTBYTES;
+    }
+
+    /**
+     * Hashes a file without copying it to the heap.
+     *
+     * @see DigestState#update(File)
+     */
+    public byte[] blake2(File file) throws IOException {
+        DigestState state = new Blake2bState();
+        state.update(file);
+        return state.digest();
+    }
+
     public String blake2(String message, Encoder encoder) throws UnsupportedOperationException {
         byte[] hash = blake2(message.getBytes());
         return encoder.encode(hash);
@@ -67,4 +158,361 @@ public class Hash {
                                                           salt, personal);
         return buffer;
     }
+
+    /**
+     * Base class for incremental hashing of messages that are not available
+     * in memory all at once. The hash state lives in native memory and can be
+     * fed from arrays, buffers, streams and file channels.
+     * <p/>
+     * Like {@link java.security.MessageDigest}, the state is reset after each
+     * digest so it can be reused for the next message. Instances are not
+     * thread-safe. Closing a state wipes its native memory.
+     */
+    public abstract static class DigestState implements Closeable {
+
+        private static final int READ_BUFFER_SIZE = 64 * 1024;
+        private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+        private static final class ReadAhead {
+            // Shared by all states; idle threads exit after a minute
+            static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "kalium-hash-read-ahead");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        protected final Pointer state;
+        private final int stateBytes;
+        private final int outLen;
+        private boolean closed;
+
+        private byte[] streamBuffer;
+        private ByteBuffer channelBuffer;
+
+        protected DigestState(long stateBytes, int outLen) {
+            this.stateBytes = (int) stateBytes;
+            this.state = allocateAligned(this.stateBytes, HASH_STATE_ALIGNMENT);
+            this.outLen = outLen;
+        }
+
+        protected abstract int nativeInit();
+
+        protected abstract int nativeUpdate(byte[] message, int len);
+
+        protected abstract int nativeUpdate(ByteBuffer message, int len);
+
+        protected abstract int nativeUpdate(Pointer message, int len);
+
+        protected abstract int nativeFinal(ByteBuffer buffer);
+
+        public int getOutputLength() {
+            return outLen;
+        }
+
+        public DigestState update(byte[] message) {
+            checkOpen();
+            isValid(nativeUpdate(message, message.length), "Hashing failed");
+            return this;
+        }
+
+        public DigestState update(byte[] message, int off, int len) {
+            checkOpen();
+            isValid(nativeUpdate(ByteBuffer.wrap(message, off, len), len), "Hashing failed");
+            return this;
+        }
+
+        /**
+         * Hashes the remaining bytes of {@code message}, leaving its position
+         * at its limit. Direct buffers are read in place.
+         */
+        public DigestState update(ByteBuffer message) {
+            checkOpen();
+            int len = message.remaining();
+            int status = message.isDirect()
+                    ? nativeUpdate(pointer(message), len)
+                    : nativeUpdate(message, len);
+            isValid(status, "Hashing failed");
+            message.position(message.limit());
+            return this;
+        }
+
+        /**
+         * Hashes everything left in {@code in}, without closing it.
+         *
+         * @return the number of bytes hashed
+         */
+        public long update(InputStream in) throws IOException {
+            if (streamBuffer == null)
+                streamBuffer = new byte[READ_BUFFER_SIZE];
+
+            long total = 0;
+            int n;
+            while ((n = in.read(streamBuffer)) != -1) {
+                update(streamBuffer, 0, n);
+                total += n;
+            }
+            return total;
+        }
+
+        /**
+         * Hashes {@code channel} from its current position to the end,
+         * reading through a reusable direct buffer.
+         *
+         * @return the number of bytes hashed
+         */
+        public long update(FileChannel channel) throws IOException {
+            if (channelBuffer == null)
+                channelBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+            long total = 0;
+            channelBuffer.clear();
+            while (channel.read(channelBuffer) != -1) {
+                channelBuffer.flip();
+                total += channelBuffer.remaining();
+                update(channelBuffer);
+                channelBuffer.clear();
+            }
+            return total;
+        }
+
+        /**
+         * Hashes a whole file. The file is mapped into memory one window at a
+         * time and libsodium reads the mapped pages directly, so no data is
+         * copied to the heap. While a window is hashed, the next one is
+         * loaded into memory by a background thread.
+         *
+         * @return the number of bytes hashed
+         */
+        public long update(File file) throws IOException {
+            return update(file, MAP_WINDOW_SIZE);
+        }
+
+        long update(File file, int windowSize) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                long size = channel.size();
+                if (size <= windowSize) {
+                    if (size > 0)
+                        update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                    return size;
+                }
+
+                MappedByteBuffer window = map(channel, 0, windowSize, size);
+                for (long position = 0; position < size; ) {
+                    long next = position + window.remaining();
+                    MappedByteBuffer nextWindow = null;
+                    if (next < size) {
+                        nextWindow = map(channel, next, windowSize, size);
+                        ReadAhead.EXECUTOR.execute(load(nextWindow));
+                    }
+                    update(window);
+                    window = nextWindow;
+                    position = next;
+                }
+                return size;
+            } finally {
+                raf.close();
+            }
+        }
+
+        private static MappedByteBuffer map(FileChannel channel, long position,
+                                            int windowSize, long size) throws IOException {
+            long length = Math.min(windowSize, size - position);
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+
+        private static Runnable load(final MappedByteBuffer window) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    window.load();
+                }
+            };
+        }
+
+        public byte[] digest() {
+            byte[] buffer = new byte[outLen];
+            digest(buffer, 0);
+            return buffer;
+        }
+
+        /**
+         * Writes the digest into {@code out} starting at {@code outOff} and
+         * resets the state.
+         *
+         * @return the number of bytes written
+         */
+        public int digest(byte[] out, int outOff) {
+            checkOpen();
+            isValid(nativeFinal(ByteBuffer.wrap(out, outOff, outLen)), "Hashing failed");
+            reset();
+            return outLen;
+        }
+
+        public void reset() {
+            checkOpen();
+            isValid(nativeInit(), "Hashing failed");
+        }
+
+        /**
+         * Zeroes the native hash state. The state cannot be used afterwards.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                state.setMemory(0, stateBytes, (byte) 0);
+                closed = true;
+            }
+        }
+
+        private void checkOpen() {
+            if (closed)
+                throw new RuntimeException("Hash state is closed");
+        }
+    }
+
+    public static class Sha256State extends DigestState {
+
+        public Sha256State() {
+            super(sodium().crypto_hash_sha256_statebytes(), SHA256BYTES);
+            reset();
+        }
+
+        @Override
+        protected int nativeInit() {
+            return sodium().crypto_hash_sha256_init(state);
+        }
+
+        @Override
+        protected int nativeUpdate(byte[] message, int len) {
+            return sodium().crypto_hash_sha256_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeUpdate(ByteBuffer message, int len) {
+            return sodium().crypto_hash_sha256_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeUpdate(Pointer message, int len) {
+            return sodium().crypto_hash_sha256_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeFinal(ByteBuffer buffer) {
+            return sodium().crypto_hash_sha256_final(state, buffer);
+        }
+    }
+
+    public static class Sha512State extends DigestState {
+
+        public Sha512State() {
+            super(sodium().crypto_hash_sha512_statebytes(), SHA512BYTES);
+            reset();
+        }
+
+        @Override
+        protected int nativeInit() {
+            return sodium().crypto_hash_sha512_init(state);
+        }
+
+        @Override
+        protected int nativeUpdate(byte[] message, int len) {
+            return sodium().crypto_hash_sha512_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeUpdate(ByteBuffer message, int len) {
+            return sodium().crypto_hash_sha512_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeUpdate(Pointer message, int len) {
+            return sodium().crypto_hash_sha512_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeFinal(ByteBuffer buffer) {
+            return sodium().crypto_hash_sha512_final(state, buffer);
+        }
+    }
+
+    /**
+     * Incremental BLAKE2b hashing with an optional key and a configurable
+     * digest length.
+     */
+    public static class Blake2bState extends DigestState {
+
+        private final byte[] key;
+
+        public Blake2bState() {
+            this(null, BLAKE2B_OUTBYTES);
+        }
+
+        public Blake2bState(int outLen) {
+            this(null, outLen);
+        }
+
+        /**
+         * @param key    optional key between {@code BLAKE2B_KEYBYTES_MIN} and
+         *               {@code BLAKE2B_KEYBYTES_MAX} bytes, or {@code null}
+         * @param outLen digest length between {@code BLAKE2B_BYTES_MIN} and
+         *               {@code BLAKE2B_BYTES_MAX} bytes
+         */
+        public Blake2bState(byte[] key, int outLen) {
+            super(sodium().crypto_generichash_statebytes(), checkOutputLength(outLen));
+            if (key != null && (key.length < BLAKE2B_KEYBYTES_MIN || key.length > BLAKE2B_KEYBYTES_MAX))
+                throw new RuntimeException("Invalid key size");
+
+            this.key = key == null ? null : key.clone();
+            reset();
+        }
+
+        private static int checkOutputLength(int outLen) {
+            if (outLen < BLAKE2B_BYTES_MIN || outLen > BLAKE2B_BYTES_MAX)
+                throw new RuntimeException("Invalid output length");
+            return outLen;
+        }
+
+        @Override
+        protected int nativeInit() {
+            int keyLen = key == null ? 0 : key.length;
+            return sodium().crypto_generichash_init(state, key, keyLen, getOutputLength());
+        }
+
+        @Override
+        protected int nativeUpdate(byte[] message, int len) {
+            return sodium().crypto_generichash_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeUpdate(ByteBuffer message, int len) {
+            return sodium().crypto_generichash_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeUpdate(Pointer message, int len) {
+            return sodium().crypto_generichash_update(state, message, len);
+        }
+
+        @Override
+        protected int nativeFinal(ByteBuffer buffer) {
+            return sodium().crypto_generichash_final(state, buffer, getOutputLength());
+        }
+
+        /**
+         * Zeroes the native hash state and the copy of the key.
+         */
+        @Override
+        public void close() {
+            super.close();
+            if (key != null)
+                Arrays.fill(key, (byte) 0);
+        }
+    }
 }
@@ -1,10 +1,17 @@
 package org.abstractj.kalium.crypto;
 
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SALTBYTES;
 import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_OUTBYTES;
 import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_STRBYTES;
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_STRBYTES;
+import static org.abstractj.kalium.NaCl.requireVersion;
 import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.checkLength;
+import static org.abstractj.kalium.crypto.Util.isValid;
 import org.abstractj.kalium.encoders.Encoder;
 
+import java.util.Arrays;
+
 public class Password {
 
     public Password() {
@@ -32,8 +39,73 @@ public class Password {
         return encoder.encode(buffer);
     }
 
+    /**
+     * Derives a key with Argon2, where {@code algorithm} is
+     * {@code PWHASH_ALG_ARGON2ID13} or {@code PWHASH_ALG_ARGON2I13}.
+     * The Argon2 methods need libsodium 1.0.15 or later and throw
+     * {@link UnsupportedOperationException} on older versions.
+     */
+    public byte[] deriveKey(int length, byte[] passwd, byte[] salt, int opslimit, long memlimit, int algorithm) {
+        requireArgon2();
+        checkLength(salt, PWHASH_SALTBYTES);
+        byte[] buffer = new byte[length];
+        isValid(sodium().crypto_pwhash(buffer, buffer.length, passwd, passwd.length, salt, opslimit, memlimit, algorithm),
+                "Key derivation failed");
+        return buffer;
+    }
+
+    /**
+     * Hashes a password for storage with Argon2id. Like the scrypt variant,
+     * the encoded buffer includes its trailing NUL padding.
+     */
+    public String hashArgon2id(byte[] passwd, Encoder encoder, int opslimit, long memlimit) {
+        requireArgon2();
+        byte[] buffer = new byte[PWHASH_STRBYTES];
+        isValid(sodium().crypto_pwhash_str(buffer, passwd, passwd.length, opslimit, memlimit), "Hashing failed");
+        return encoder.encode(buffer);
+    }
+
+    /**
+     * Verifies a password against a stored scrypt or Argon2 hash, picking
+     * the algorithm from the hash prefix.
+     */
     public boolean verify(byte[] hashed_passwd, byte[] passwd) {
+        if (isArgon2(hashed_passwd)) {
+            requireArgon2();
+            return sodium().crypto_pwhash_str_verify(terminated(hashed_passwd), passwd, passwd.length) == 0;
+        }
         int result = sodium().crypto_pwhash_scryptsalsa208sha256_str_verify(hashed_passwd, passwd, passwd.length);
         return result == 0;
     }
+
+    /**
+     * Returns whether a stored hash should be replaced by one computed with
+     * {@link #hashArgon2id} and the given limits, which is the case for
+     * scrypt hashes and for Argon2id hashes with different parameters.
+     */
+    public boolean needsRehash(byte[] hashed_passwd, int opslimit, long memlimit) {
+        if (!isArgon2(hashed_passwd)) {
+            return true;
+        }
+        requireArgon2();
+        return sodium().crypto_pwhash_str_needs_rehash(terminated(hashed_passwd), opslimit, memlimit) != 0;
+    }
+
+    static boolean isArgon2(byte[] hashed_passwd) {
+        byte[] prefix = "$argon2".getBytes();
+        return hashed_passwd.length > prefix.length
+                && Arrays.equals(prefix, Arrays.copyOf(hashed_passwd, prefix.length));
+    }
+
+    private static void requireArgon2() {
+        requireVersion("Argon2id password hashing", 1, 0, 15);
+    }
+
+    private static byte[] terminated(byte[] hashed_passwd) {
+        for (byte b : hashed_passwd) {
+            if (b == 0)
+                return hashed_passwd;
+        }
+        return Arrays.copyOf(hashed_passwd, hashed_passwd.length + 1);
+    }
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN;
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN;
+import static org.abstractj.kalium.crypto.Util.runAll;
+
+/**
+ * Finds scrypt parameters for {@link Password} by benchmarking this host.
+ * <p/>
+ * The memory limit starts at the largest power of two that fits the memory
+ * ceiling divided by the concurrency, with an operations limit that uses
+ * all of it. While the measured latency is above the target both limits
+ * are halved; once it fits, the operations limit is doubled for as long as
+ * the latency stays within the target. Each measurement runs
+ * {@code concurrency} hashes at the same time and keeps the slowest, so
+ * the result holds when the host is busy hashing in parallel.
+ */
+public class PasswordCalibrator {
+
+    private static final int KEY_BYTES = 32;
+    private static final byte[] PASSWORD = "kalium-calibration".getBytes();
+    private static final byte[] SALT = new byte[32];
+
+    private final Password password = new Password();
+
+    /**
+     * Returns the strongest parameters whose latency is within
+     * {@code targetLatency} when {@code concurrency} hashes run at once,
+     * using at most {@code memoryCeiling} bytes between them. If even the
+     * minimum parameters are slower than the target they are returned
+     * anyway, with their measured latency.
+     */
+    public Parameters calibrate(long targetLatency, TimeUnit unit, long memoryCeiling, int concurrency) {
+        if (targetLatency <= 0 || concurrency <= 0)
+            throw new RuntimeException("Invalid calibration target");
+        if (memoryCeiling / concurrency < PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN)
+            throw new RuntimeException("Memory ceiling too low for concurrency");
+        long target = unit.toNanos(targetLatency);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long memlimit = Long.highestOneBit(memoryCeiling / concurrency);
+            long opslimit = opslimitFor(memlimit);
+            long latency = measure(executor, concurrency, opslimit, memlimit);
+            while (latency > target && memlimit > PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN) {
+                memlimit /= 2;
+                opslimit = opslimitFor(memlimit);
+                latency = measure(executor, concurrency, opslimit, memlimit);
+            }
+            while (latency > target && opslimit > PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN) {
+                opslimit = Math.max(PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN, opslimit / 2);
+                latency = measure(executor, concurrency, opslimit, memlimit);
+            }
+            while (latency <= target && opslimit <= Integer.MAX_VALUE / 2) {
+                long stronger = measure(executor, concurrency, opslimit * 2, memlimit);
+                if (stronger > target)
+                    break;
+                opslimit *= 2;
+                latency = stronger;
+            }
+            return new Parameters((int) opslimit, memlimit, latency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Operations limit at which scrypt uses all of {@code memlimit} with a
+     * single lane.
+     */
+    private static long opslimitFor(long memlimit) {
+        return Math.min(Integer.MAX_VALUE, Math.max(PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN, memlimit / 32));
+    }
+
+    private long measure(ExecutorService executor, int concurrency, final long opslimit, final long memlimit) {
+        List<Callable<Long>> tasks = new ArrayList<Callable<Long>>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    long start = System.nanoTime();
+                    password.deriveKey(KEY_BYTES, PASSWORD, SALT, (int) opslimit, memlimit);
+                    return System.nanoTime() - start;
+                }
+            });
+        }
+        long slowest = 0;
+        for (long latency : runAll(tasks, executor, "Calibration")) {
+            slowest = Math.max(slowest, latency);
+        }
+        return slowest;
+    }
+
+    public static class Parameters {
+
+        private final int opslimit;
+        private final long memlimit;
+        private final long latency;
+
+        private Parameters(int opslimit, long memlimit, long latency) {
+            this.opslimit = opslimit;
+            this.memlimit = memlimit;
+            this.latency = latency;
+        }
+
+        public int getOpslimit() {
+            return opslimit;
+        }
+
+        public long getMemlimit() {
+            return memlimit;
+        }
+
+        /**
+         * Slowest latency measured for these parameters.
+         */
+        public long getLatency(TimeUnit unit) {
+            return unit.convert(latency, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return "opslimit=" + opslimit + ", memlimit=" + memlimit
+                    + ", latency=" + TimeUnit.NANOSECONDS.toMillis(latency) + "ms";
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.abstractj.kalium.encoders.Encoder;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+
+/**
+ * Runs {@link Password} operations asynchronously on a dedicated, bounded
+ * thread pool.
+ * <p/>
+ * Besides the thread count, concurrency is limited by a memory budget:
+ * every operation reserves its {@code memlimit} when it is handed to the
+ * pool and releases it when done, so the combined memory of the hashes in
+ * flight never exceeds the budget. Operations that do not fit wait, in
+ * submission order, in the service queue without holding a thread.
+ * Submissions beyond the queue capacity are rejected with a
+ * {@link RejectedExecutionException}.
+ * <p/>
+ * Results are available through the returned {@link Future} or, to avoid
+ * blocking on it, through a {@link Callback} run on the pool thread that
+ * completed the operation.
+ */
+public class PasswordService {
+
+    private static final int KIB = 1024;
+
+    private final Password password = new Password();
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final int memoryBudgetKib;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final Queue<Operation<?>> pending = new ArrayDeque<Operation<?>>();
+    private int availableKib;
+    private boolean shutdown;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param threads       number of threads running password operations
+     * @param queueCapacity number of operations that may wait for a thread
+     * @param memoryBudget  maximum combined {@code memlimit}, in bytes, of the
+     *                      operations running at the same time
+     */
+    public PasswordService(int threads, int queueCapacity, long memoryBudget) {
+        if (threads <= 0 || queueCapacity <= 0)
+            throw new RuntimeException("Invalid pool size");
+        if (memoryBudget < KIB || memoryBudget / KIB > Integer.MAX_VALUE)
+            throw new RuntimeException("Invalid memory budget");
+        this.memoryBudgetKib = (int) (memoryBudget / KIB);
+        this.availableKib = memoryBudgetKib;
+        this.queueCapacity = queueCapacity;
+        // Bounded by queueCapacity in submit, which counts both queues
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+    }
+
+    /**
+     * Receives the outcome of an operation on the pool thread that ran it.
+     * Callbacks should return quickly, since the thread is not available to
+     * other operations until they do.
+     */
+    public interface Callback<T> {
+
+        void onSuccess(T result);
+
+        void onFailure(Throwable error);
+    }
+
+    public Future<byte[]> deriveKey(int length, byte[] passwd, byte[] salt, int opslimit, long memlimit) {
+        return deriveKey(length, passwd, salt, opslimit, memlimit, (Callback<byte[]>) null);
+    }
+
+    public Future<byte[]> deriveKey(final int length, final byte[] passwd, final byte[] salt,
+                                    final int opslimit, final long memlimit, Callback<byte[]> callback) {
+        checkBudget(memlimit);
+        return submit(memlimit, callback, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return password.deriveKey(length, passwd, salt, opslimit, memlimit);
+            }
+        });
+    }
+
+    public Future<String> hash(byte[] passwd, Encoder encoder, int opslimit, long memlimit) {
+        return hash(passwd, encoder, opslimit, memlimit, null);
+    }
+
+    public Future<String> hash(final byte[] passwd, final Encoder encoder, final int opslimit, final long memlimit,
+                               Callback<String> callback) {
+        checkBudget(memlimit);
+        return submit(memlimit, callback, new Callable<String>() {
+            @Override
+            public String call() {
+                return password.hash(passwd, encoder, opslimit, memlimit);
+            }
+        });
+    }
+
+    public Future<byte[]> deriveKey(int length, byte[] passwd, byte[] salt, int opslimit, long memlimit,
+                                    int algorithm) {
+        return deriveKey(length, passwd, salt, opslimit, memlimit, algorithm, null);
+    }
+
+    public Future<byte[]> deriveKey(final int length, final byte[] passwd, final byte[] salt,
+                                    final int opslimit, final long memlimit, final int algorithm,
+                                    Callback<byte[]> callback) {
+        checkBudget(memlimit);
+        return submit(memlimit, callback, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return password.deriveKey(length, passwd, salt, opslimit, memlimit, algorithm);
+            }
+        });
+    }
+
+    public Future<String> hashArgon2id(byte[] passwd, Encoder encoder, int opslimit, long memlimit) {
+        return hashArgon2id(passwd, encoder, opslimit, memlimit, null);
+    }
+
+    public Future<String> hashArgon2id(final byte[] passwd, final Encoder encoder, final int opslimit,
+                                       final long memlimit, Callback<String> callback) {
+        checkBudget(memlimit);
+        return submit(memlimit, callback, new Callable<String>() {
+            @Override
+            public String call() {
+                return password.hashArgon2id(passwd, encoder, opslimit, memlimit);
+            }
+        });
+    }
+
+    /**
+     * Verifies a password against a hash string. The memory reserved is
+     * read from the hash parameters and capped at the memory budget, so
+     * hashes stronger than the budget can still be verified.
+     */
+    public Future<Boolean> verify(byte[] hashed_passwd, byte[] passwd) {
+        return verify(hashed_passwd, passwd, null);
+    }
+
+    public Future<Boolean> verify(final byte[] hashed_passwd, final byte[] passwd, Callback<Boolean> callback) {
+        return submit(memoryCost(hashed_passwd), callback, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return password.verify(hashed_passwd, passwd);
+            }
+        });
+    }
+
+    /**
+     * Stops accepting operations. Operations already submitted still run.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            if (pending.isEmpty())
+                executor.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Number of operations waiting for memory or for a thread.
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return pending.size() + executor.getQueue().size();
+        }
+    }
+
+    /**
+     * Number of operations running.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Memory, in bytes, reserved by the operations running or waiting for a
+     * thread.
+     */
+    public long getReservedMemory() {
+        synchronized (lock) {
+            return (long) (memoryBudgetKib - availableKib) * KIB;
+        }
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Average time from submission to completion, queueing included.
+     */
+    public long getAverageLatency(TimeUnit unit) {
+        long count = completed.get() + failed.get();
+        return count == 0 ? 0 : unit.convert(totalLatency.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(maxLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void checkBudget(long memlimit) {
+        if (memlimit > (long) memoryBudgetKib * KIB)
+            throw new RuntimeException("Memory limit exceeds the memory budget");
+    }
+
+    private <T> Future<T> submit(long memlimit, Callback<T> callback, Callable<T> operation) {
+        int permits = (int) Math.min(memoryBudgetKib, Math.max(1, (memlimit + KIB - 1) / KIB));
+        Operation<T> task = new Operation<T>(permits, operation, callback);
+        synchronized (lock) {
+            if (shutdown)
+                throw new RejectedExecutionException("Password service is shut down");
+            if (pending.size() + executor.getQueue().size() >= queueCapacity)
+                throw new RejectedExecutionException("Password service queue is full");
+            pending.add(task);
+            dispatch();
+        }
+        return task;
+    }
+
+    private void release(int permits) {
+        synchronized (lock) {
+            availableKib += permits;
+            dispatch();
+        }
+    }
+
+    /**
+     * Hands waiting operations to the pool, in order, while their memory
+     * fits in the budget. Must hold the lock.
+     */
+    private void dispatch() {
+        Operation<?> next;
+        while ((next = pending.peek()) != null) {
+            if (!next.isCancelled()) {
+                if (next.permits > availableKib)
+                    break;
+                availableKib -= next.permits;
+                executor.execute(next);
+            }
+            pending.remove();
+        }
+        if (shutdown && pending.isEmpty())
+            executor.shutdown();
+    }
+
+    private void record(long latency, boolean success) {
+        (success ? completed : failed).incrementAndGet();
+        totalLatency.addAndGet(latency);
+        long max;
+        do {
+            max = maxLatency.get();
+        } while (latency > max && !maxLatency.compareAndSet(max, latency));
+    }
+
+    /**
+     * Returns the memory needed to verify a hash string. For Argon2 it is
+     * the {@code m=} parameter in KiB; for scrypt ({@code $7$} followed by
+     * log2(N) and r in crypt(3) base64) it is 128 * r * N bytes. Falls back
+     * to the scrypt interactive limit when the string cannot be parsed.
+     */
+    static long memoryCost(byte[] hashed_passwd) {
+        if (Password.isArgon2(hashed_passwd))
+            return argon2MemoryCost(hashed_passwd);
+        String itoa64 = "./0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        if (hashed_passwd.length < 9 || hashed_passwd[0] != '$' || hashed_passwd[1] != '7'
+                || hashed_passwd[2] != '$')
+            return PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+        int nLog2 = itoa64.indexOf(hashed_passwd[3]);
+        long r = 0;
+        for (int i = 0; i < 5; i++) {
+            int digit = itoa64.indexOf(hashed_passwd[4 + i]);
+            if (digit < 0)
+                return PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+            r |= (long) digit << (6 * i);
+        }
+        if (nLog2 < 1 || r == 0)
+            return PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+        if (nLog2 > 55 || r > Long.MAX_VALUE >> (nLog2 + 7))
+            return Long.MAX_VALUE;
+        return (128L * r) << nLog2;
+    }
+
+    private static long argon2MemoryCost(byte[] hashed_passwd) {
+        String hash = new String(hashed_passwd, 0, hashed_passwd.length);
+        int start = hash.indexOf("$m=");
+        if (start < 0)
+            return PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+        long kib = 0;
+        for (int i = start + 3; i < hash.length() && Character.isDigit(hash.charAt(i)); i++) {
+            kib = kib * 10 + (hash.charAt(i) - '0');
+            if (kib > Long.MAX_VALUE / KIB / 10)
+                return Long.MAX_VALUE;
+        }
+        return kib == 0 ? PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE : kib * KIB;
+    }
+
+    private class Operation<T> extends FutureTask<T> {
+
+        private final int permits;
+        private final Callback<T> callback;
+        private final long submitted = System.nanoTime();
+        // Only touched by the pool thread running the operation
+        private boolean released;
+
+        private Operation(int permits, Callable<T> operation, Callback<T> callback) {
+            super(operation);
+            this.permits = permits;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                releaseMemory();
+            }
+        }
+
+        // Memory and metrics are settled before waiters on get() wake up
+        @Override
+        protected void set(T result) {
+            releaseMemory();
+            record(System.nanoTime() - submitted, true);
+            super.set(result);
+            if (callback != null && !isCancelled()) {
+                try {
+                    callback.onSuccess(result);
+                } catch (RuntimeException e) {
+                    uncaught(e);
+                }
+            }
+        }
+
+        @Override
+        protected void setException(Throwable error) {
+            releaseMemory();
+            record(System.nanoTime() - submitted, false);
+            super.setException(error);
+            if (callback != null && !isCancelled()) {
+                try {
+                    callback.onFailure(error);
+                } catch (RuntimeException e) {
+                    uncaught(e);
+                }
+            }
+        }
+
+        private void releaseMemory() {
+            if (!released) {
+                released = true;
+                release(permits);
+            }
+        }
+
+        private void uncaught(RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "kalium-password-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -16,12 +16,57 @@
 
 package org.abstractj.kalium.crypto;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+
 import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.pointer;
 
+/**
+ * Random bytes from libsodium's CSPRNG.
+ * <p/>
+ * A buffered instance fills a block per thread with a single native call
+ * and serves small requests from it, so generating a nonce costs a copy
+ * instead of a call into libsodium. Bytes are zeroed in the block as they
+ * are handed out. Requests larger than half the block bypass it.
+ */
 public class Random {
 
     private static final int DEFAULT_SIZE = 32;
 
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final int bufferSize;
+    private final ThreadLocal<Block> blocks;
+
+    public Random() {
+        this(0);
+    }
+
+    /**
+     * @param bufferSize size of the per-thread block, or {@code 0} to call
+     *                   libsodium for every request
+     */
+    public Random(final int bufferSize) {
+        if (bufferSize < 0)
+            throw new RuntimeException("Invalid buffer size");
+        this.bufferSize = bufferSize;
+        this.blocks = bufferSize == 0 ? null : new ThreadLocal<Block>() {
+            @Override
+            protected Block initialValue() {
+                return new Block(bufferSize);
+            }
+        };
+    }
+
+    /**
+     * Returns a buffered instance using {@link #DEFAULT_BUFFER_SIZE}.
+     */
+    public static Random buffered() {
+        return new Random(DEFAULT_BUFFER_SIZE);
+    }
+
     /**
      * Generate random bytes
      *
@@ -30,13 +75,122 @@ public class Random {
      */
     public byte[] randomBytes(int n) {
         byte[] buffer = new byte[n];
-        sodium().randombytes(buffer, n);
+        randomBytes(buffer, 0, n);
         return buffer;
     }
 
     public byte[] randomBytes() {
-        byte[] buffer = new byte[DEFAULT_SIZE];
-        sodium().randombytes(buffer, DEFAULT_SIZE);
-        return buffer;
+        return randomBytes(DEFAULT_SIZE);
+    }
+
+    /**
+     * Fills {@code len} bytes of {@code out} starting at {@code off}.
+     */
+    public void randomBytes(byte[] out, int off, int len) {
+        if (off < 0 || len < 0 || off > out.length - len)
+            throw new RuntimeException("Invalid size");
+        if (!buffers(len)) {
+            sodium().randombytes_buf(ByteBuffer.wrap(out, off, len), len);
+            return;
+        }
+        Block block = blocks.get();
+        int position = block.reserve(len);
+        System.arraycopy(block.data, position, out, off, len);
+        Arrays.fill(block.data, position, position + len, (byte) 0);
+    }
+
+    /**
+     * Fills the remaining bytes of {@code dst} and advances its position to
+     * its limit.
+     *
+     * @throws ReadOnlyBufferException if {@code dst} is read-only
+     */
+    public void randomBytes(ByteBuffer dst) {
+        if (dst.isReadOnly())
+            throw new ReadOnlyBufferException();
+        int len = dst.remaining();
+        if (dst.hasArray()) {
+            randomBytes(dst.array(), dst.arrayOffset() + dst.position(), len);
+        } else if (buffers(len)) {
+            Block block = blocks.get();
+            int position = block.reserve(len);
+            dst.duplicate().put(block.data, position, len);
+            Arrays.fill(block.data, position, position + len, (byte) 0);
+        } else if (dst.isDirect()) {
+            sodium().randombytes_buf(pointer(dst), len);
+        } else {
+            byte[] bytes = randomBytes(len);
+            dst.duplicate().put(bytes);
+            Arrays.fill(bytes, (byte) 0);
+        }
+        dst.position(dst.limit());
+    }
+
+    /**
+     * Returns a uniformly distributed int.
+     */
+    public int nextInt() {
+        if (!buffers(4))
+            return sodium().randombytes_random();
+        return (int) nextBits(4);
+    }
+
+    /**
+     * Returns a uniformly distributed int between 0 (inclusive) and
+     * {@code bound} (exclusive), without modulo bias.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new RuntimeException("Invalid bound");
+        return sodium().randombytes_uniform(bound);
+    }
+
+    /**
+     * Returns a uniformly distributed long.
+     */
+    public long nextLong() {
+        if (!buffers(8))
+            return ((long) sodium().randombytes_random() << 32) | (sodium().randombytes_random() & 0xffffffffL);
+        return nextBits(8);
+    }
+
+    private long nextBits(int bytes) {
+        Block block = blocks.get();
+        int position = block.reserve(bytes);
+        long bits = 0;
+        for (int i = 0; i < bytes; i++) {
+            bits = (bits << 8) | (block.data[position + i] & 0xff);
+            block.data[position + i] = 0;
+        }
+        return bits;
+    }
+
+    private boolean buffers(int len) {
+        return blocks != null && len <= bufferSize / 2;
+    }
+
+    private static class Block {
+
+        private final byte[] data;
+        private int position;
+
+        private Block(int size) {
+            this.data = new byte[size];
+            this.position = size;
+        }
+
+        /**
+         * Returns the offset of {@code len} unused bytes, refilling the
+         * block when too few are left.
+         */
+        private int reserve(int len) {
+            if (data.length - position < len) {
+                sodium().randombytes_buf(data, data.length);
+                position = 0;
+            }
+            int offset = position;
+            position += len;
+            return offset;
+        }
     }
 }
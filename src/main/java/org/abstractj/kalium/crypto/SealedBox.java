@@ -2,6 +2,8 @@ package org.abstractj.kalium.crypto;
 
 import org.abstractj.kalium.encoders.Encoder;
 
+import java.nio.ByteBuffer;
+
 import static org.abstractj.kalium.NaCl.Sodium.SEAL_BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
 import static org.abstractj.kalium.crypto.Util.isValid;
@@ -48,4 +50,39 @@ public class SealedBox {
         return message;
     }
 
+    /**
+     * Encrypts {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the ciphertext into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code inLen + SEAL_BYTES}
+     */
+    public int encrypt(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        int ctLength = inLen + SEAL_BYTES;
+        ByteBuffer ct = ByteBuffer.wrap(out, outOff, ctLength);
+        ByteBuffer message = ByteBuffer.wrap(in, inOff, inLen);
+        isValid(sodium().crypto_box_seal(ct, message, inLen, publicKey),
+                "Encryption failed");
+        return ctLength;
+    }
+
+    /**
+     * Decrypts {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the message into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code inLen - SEAL_BYTES}
+     */
+    public int decrypt(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        if (privateKey == null)
+            throw new RuntimeException("Decryption failed. Private key not available.");
+        if (inLen < SEAL_BYTES)
+            throw new RuntimeException("Invalid size");
+
+        int messageLength = inLen - SEAL_BYTES;
+        ByteBuffer message = ByteBuffer.wrap(out, outOff, messageLength);
+        ByteBuffer ct = ByteBuffer.wrap(in, inOff, inLen);
+        isValid(sodium().crypto_box_seal_open(
+                        message, ct, inLen, publicKey, privateKey),
+                "Decryption failed. Ciphertext failed verification");
+        return messageLength;
+    }
 }
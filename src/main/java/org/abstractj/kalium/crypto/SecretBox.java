@@ -18,14 +18,18 @@ package org.abstractj.kalium.crypto;
 
 import org.abstractj.kalium.encoders.Encoder;
 
-import static org.abstractj.kalium.NaCl.Sodium.BOXZERO_BYTES;
+import java.nio.ByteBuffer;
+
+import static org.abstractj.kalium.NaCl.Sodium.MAC_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_NONCEBYTES;
 import static org.abstractj.kalium.NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_KEYBYTES;
-import static org.abstractj.kalium.NaCl.Sodium.ZERO_BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.checkCiphertext;
 import static org.abstractj.kalium.crypto.Util.checkLength;
+import static org.abstractj.kalium.crypto.Util.checkRemaining;
+import static org.abstractj.kalium.crypto.Util.checkRemainingLength;
 import static org.abstractj.kalium.crypto.Util.isValid;
-import static org.abstractj.kalium.crypto.Util.removeZeros;
+import static org.abstractj.kalium.crypto.Util.pointer;
 
 public class SecretBox {
 
@@ -42,19 +46,140 @@ public class SecretBox {
 
     public byte[] encrypt(byte[] nonce, byte[] message) {
         checkLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
-        byte[] msg = Util.prependZeros(ZERO_BYTES, message);
-        byte[] ct = Util.zeros(msg.length);
-        isValid(sodium().crypto_secretbox_xsalsa20poly1305(ct, msg, msg.length,
+        byte[] ct = new byte[message.length + MAC_BYTES];
+        isValid(sodium().crypto_secretbox_easy(ct, message, message.length,
                 nonce, key), "Encryption failed");
-        return removeZeros(BOXZERO_BYTES, ct);
+        return ct;
     }
 
     public byte[] decrypt(byte[] nonce, byte[] ciphertext) {
         checkLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
-        byte[] ct = Util.prependZeros(BOXZERO_BYTES, ciphertext);
-        byte[] message = Util.zeros(ct.length);
-        isValid(sodium().crypto_secretbox_xsalsa20poly1305_open(message, ct,
-                ct.length, nonce, key), "Decryption failed. Ciphertext failed verification");
-        return removeZeros(ZERO_BYTES, message);
+        checkCiphertext(ciphertext);
+        byte[] message = new byte[ciphertext.length - MAC_BYTES];
+        isValid(sodium().crypto_secretbox_open_easy(message, ciphertext,
+                ciphertext.length, nonce, key), "Decryption failed. Ciphertext failed verification");
+        return message;
+    }
+
+    /**
+     * Encrypts {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the ciphertext into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code inLen + MAC_BYTES}
+     */
+    public int encrypt(byte[] nonce, byte[] in, int inOff, int inLen,
+                       byte[] out, int outOff) {
+        checkLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        int ctLength = inLen + MAC_BYTES;
+        ByteBuffer ct = ByteBuffer.wrap(out, outOff, ctLength);
+        ByteBuffer msg = ByteBuffer.wrap(in, inOff, inLen);
+        isValid(sodium().crypto_secretbox_easy(ct, msg, inLen, nonce, key),
+                "Encryption failed");
+        return ctLength;
+    }
+
+    /**
+     * Decrypts {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the message into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code inLen - MAC_BYTES}
+     */
+    public int decrypt(byte[] nonce, byte[] in, int inOff, int inLen,
+                       byte[] out, int outOff) {
+        checkLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        if (inLen < MAC_BYTES)
+            throw new RuntimeException("Invalid size");
+        int messageLength = inLen - MAC_BYTES;
+        ByteBuffer message = ByteBuffer.wrap(out, outOff, messageLength);
+        ByteBuffer ct = ByteBuffer.wrap(in, inOff, inLen);
+        isValid(sodium().crypto_secretbox_open_easy(message, ct, inLen, nonce,
+                key), "Decryption failed. Ciphertext failed verification");
+        return messageLength;
+    }
+
+    /**
+     * Encrypts a message, writing the authentication tag into {@code mac}
+     * instead of prepending it to the ciphertext.
+     *
+     * @param nonce   nonce of {@code NONCEBYTES}
+     * @param message message to encrypt
+     * @param mac     output buffer of {@code MAC_BYTES} for the authentication tag
+     * @return the ciphertext, the same length as the message
+     */
+    public byte[] encryptDetached(byte[] nonce, byte[] message, byte[] mac) {
+        checkLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        checkLength(mac, MAC_BYTES);
+        byte[] ct = new byte[message.length];
+        isValid(sodium().crypto_secretbox_detached(ct, mac, message,
+                message.length, nonce, key), "Encryption failed");
+        return ct;
+    }
+
+    /**
+     * Decrypts a ciphertext produced by {@link #encryptDetached}.
+     *
+     * @param nonce      nonce of {@code NONCEBYTES}
+     * @param ciphertext ciphertext without the authentication tag
+     * @param mac        authentication tag of {@code MAC_BYTES}
+     * @return the decrypted message
+     */
+    public byte[] decryptDetached(byte[] nonce, byte[] ciphertext, byte[] mac) {
+        checkLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        checkLength(mac, MAC_BYTES);
+        byte[] message = new byte[ciphertext.length];
+        isValid(sodium().crypto_secretbox_open_detached(message, ciphertext,
+                mac, ciphertext.length, nonce, key), "Decryption failed. Ciphertext failed verification");
+        return message;
+    }
+
+    /**
+     * Encrypts the remaining bytes of {@code src} into {@code dst}, starting at
+     * its current position. All buffers must be direct: their native addresses
+     * are passed to libsodium, so no heap copies are made. On return the
+     * position of {@code src} is at its limit and the position of {@code dst}
+     * is advanced by the number of bytes written.
+     *
+     * @param nonce buffer with exactly {@code NONCEBYTES} remaining
+     * @param src   message to encrypt
+     * @param dst   buffer with at least {@code src.remaining() + MAC_BYTES} remaining
+     * @return the number of bytes written into {@code dst}
+     */
+    public int encrypt(ByteBuffer nonce, ByteBuffer src, ByteBuffer dst) {
+        checkRemainingLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        int length = src.remaining();
+        int ctLength = length + MAC_BYTES;
+        checkRemaining(dst, ctLength);
+        isValid(sodium().crypto_secretbox_easy(pointer(dst), pointer(src),
+                length, pointer(nonce), key), "Encryption failed");
+        src.position(src.limit());
+        dst.position(dst.position() + ctLength);
+        return ctLength;
+    }
+
+    /**
+     * Decrypts the remaining bytes of {@code src} into {@code dst}, starting at
+     * its current position. All buffers must be direct: their native addresses
+     * are passed to libsodium, so no heap copies are made. On return the
+     * position of {@code src} is at its limit and the position of {@code dst}
+     * is advanced by the number of bytes written.
+     *
+     * @param nonce buffer with exactly {@code NONCEBYTES} remaining
+     * @param src   ciphertext to decrypt
+     * @param dst   buffer with at least {@code src.remaining() - MAC_BYTES} remaining
+     * @return the number of bytes written into {@code dst}
+     */
+    public int decrypt(ByteBuffer nonce, ByteBuffer src, ByteBuffer dst) {
+        checkRemainingLength(nonce, XSALSA20_POLY1305_SECRETBOX_NONCEBYTES);
+        int length = src.remaining();
+        if (length < MAC_BYTES)
+            throw new RuntimeException("Invalid size");
+        int messageLength = length - MAC_BYTES;
+        checkRemaining(dst, messageLength);
+        isValid(sodium().crypto_secretbox_open_easy(pointer(dst), pointer(src),
+                length, pointer(nonce), key),
+                "Decryption failed. Ciphertext failed verification");
+        src.position(src.limit());
+        dst.position(dst.position() + messageLength);
+        return messageLength;
     }
 }
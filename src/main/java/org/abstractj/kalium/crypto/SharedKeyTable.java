@@ -0,0 +1,247 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.abstractj.kalium.keys.PublicKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.abstractj.kalium.NaCl.Sodium.BEFORENMBYTES;
+import static org.abstractj.kalium.NaCl.Sodium.PUBLICKEY_BYTES;
+import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.checkLength;
+import static org.abstractj.kalium.crypto.Util.isValid;
+
+/**
+ * Table of precomputed {@link Box} shared keys indexed by peer public key,
+ * which can be saved and loaded to skip key agreement on restart.
+ * <p/>
+ * A table belongs to the local key pair whose private key derived its
+ * shared keys. The binary format is the magic {@code "KSKT"}, a version
+ * byte, a BLAKE2b fingerprint of the local public key, the entry count as a
+ * big-endian int, and then for every entry the peer public key followed by
+ * the shared key. Loading checks the fingerprint, so a table left over from
+ * a rotated key pair is rejected instead of producing boxes that cannot
+ * decrypt anything.
+ * <p/>
+ * Shared keys are stored unencrypted, so the file must be protected like
+ * the private key they were derived from. {@link #save(File)} creates it
+ * readable by its owner only.
+ * <p/>
+ * Tables are thread-safe. Shared keys are copied while holding the table's
+ * lock, so a concurrent update never hands out a zeroed or partially
+ * replaced key.
+ */
+public class SharedKeyTable {
+
+    private static final byte[] MAGIC = {'K', 'S', 'K', 'T'};
+    private static final int VERSION = 2;
+    private static final int FINGERPRINT_BYTES = 32;
+
+    private final byte[] fingerprint;
+    private final Map<ByteBuffer, byte[]> entries = new HashMap<ByteBuffer, byte[]>();
+
+    /**
+     * @param localKey public key of the key pair the shared keys are
+     *                 derived from
+     */
+    public SharedKeyTable(PublicKey localKey) {
+        this.fingerprint = fingerprint(localKey);
+    }
+
+    private static byte[] fingerprint(PublicKey localKey) {
+        byte[] key = localKey.toBytes();
+        checkLength(key, PUBLICKEY_BYTES);
+        byte[] fingerprint = new byte[FINGERPRINT_BYTES];
+        isValid(sodium().crypto_generichash_blake2b(fingerprint, FINGERPRINT_BYTES, key, key.length, null, 0),
+                "Hashing failed");
+        return fingerprint;
+    }
+
+    public void put(PublicKey peer, Box box) {
+        put(peer.toBytes(), box.getSharedKey());
+    }
+
+    public synchronized void put(byte[] peer, byte[] sharedKey) {
+        checkLength(peer, PUBLICKEY_BYTES);
+        checkLength(sharedKey, BEFORENMBYTES);
+        byte[] previous = entries.put(ByteBuffer.wrap(peer.clone()), sharedKey.clone());
+        if (previous != null)
+            Arrays.fill(previous, (byte) 0);
+    }
+
+    /**
+     * Returns a box for the given peer, or {@code null} if the table has
+     * no shared key for it.
+     */
+    public Box get(PublicKey peer) {
+        return get(peer.toBytes());
+    }
+
+    public synchronized Box get(byte[] peer) {
+        byte[] sharedKey = entries.get(ByteBuffer.wrap(peer));
+        return sharedKey == null ? null : Box.fromSharedKey(sharedKey);
+    }
+
+    public synchronized boolean contains(PublicKey peer) {
+        return entries.containsKey(ByteBuffer.wrap(peer.toBytes()));
+    }
+
+    public synchronized void remove(PublicKey peer) {
+        byte[] sharedKey = entries.remove(ByteBuffer.wrap(peer.toBytes()));
+        if (sharedKey != null)
+            Arrays.fill(sharedKey, (byte) 0);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Zeroes and removes every shared key.
+     */
+    public synchronized void clear() {
+        for (byte[] sharedKey : entries.values()) {
+            Arrays.fill(sharedKey, (byte) 0);
+        }
+        entries.clear();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        // Copy the entries under the lock, so the output is consistent
+        // without holding the lock during I/O
+        int count;
+        byte[] snapshot;
+        synchronized (this) {
+            count = entries.size();
+            snapshot = new byte[count * (PUBLICKEY_BYTES + BEFORENMBYTES)];
+            int off = 0;
+            for (Map.Entry<ByteBuffer, byte[]> entry : entries.entrySet()) {
+                System.arraycopy(entry.getKey().array(), 0, snapshot, off, PUBLICKEY_BYTES);
+                off += PUBLICKEY_BYTES;
+                System.arraycopy(entry.getValue(), 0, snapshot, off, BEFORENMBYTES);
+                off += BEFORENMBYTES;
+            }
+        }
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.write(MAGIC);
+            data.writeByte(VERSION);
+            data.write(fingerprint);
+            data.writeInt(count);
+            data.write(snapshot);
+            data.flush();
+        } finally {
+            Arrays.fill(snapshot, (byte) 0);
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #writeTo}, checking that it belongs to
+     * the key pair of {@code localKey}.
+     */
+    public static SharedKeyTable readFrom(InputStream in, PublicKey localKey) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("Not a shared key table");
+        int version = data.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported shared key table version " + version);
+        SharedKeyTable table = new SharedKeyTable(localKey);
+        byte[] fingerprint = new byte[FINGERPRINT_BYTES];
+        data.readFully(fingerprint);
+        if (!Arrays.equals(fingerprint, table.fingerprint))
+            throw new IOException("Shared key table belongs to a different key pair");
+        int count = data.readInt();
+        if (count < 0)
+            throw new IOException("Invalid shared key table size");
+
+        byte[] peer = new byte[PUBLICKEY_BYTES];
+        byte[] sharedKey = new byte[BEFORENMBYTES];
+        try {
+            for (int i = 0; i < count; i++) {
+                data.readFully(peer);
+                data.readFully(sharedKey);
+                table.put(peer, sharedKey);
+            }
+        } catch (EOFException e) {
+            table.clear();
+            throw new IOException("Truncated shared key table", e);
+        } finally {
+            Arrays.fill(sharedKey, (byte) 0);
+        }
+        return table;
+    }
+
+    /**
+     * Writes the table to a temporary file readable only by its owner and
+     * renames it over {@code file}, so readers never see a partial table.
+     */
+    public void save(File file) throws IOException {
+        File temp = File.createTempFile("." + file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            restrictToOwner(temp);
+            FileOutputStream stream = new FileOutputStream(temp);
+            try {
+                OutputStream out = new BufferedOutputStream(stream);
+                writeTo(out);
+                out.flush();
+                stream.getFD().sync();
+            } finally {
+                stream.close();
+            }
+            // Windows does not rename over an existing file
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+                throw new IOException("Cannot replace " + file);
+        } finally {
+            if (temp.exists())
+                temp.delete();
+        }
+    }
+
+    private static void restrictToOwner(File file) throws IOException {
+        boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true);
+        if (!restricted)
+            throw new IOException("Cannot restrict permissions of " + file);
+    }
+
+    public static SharedKeyTable load(File file, PublicKey localKey) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return readFrom(in, localKey);
+        } finally {
+            in.close();
+        }
+    }
+}
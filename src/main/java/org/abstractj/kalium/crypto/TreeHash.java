@@ -0,0 +1,262 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_OUTBYTES;
+import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.crypto.Util.isValid;
+import static org.abstractj.kalium.crypto.Util.pointer;
+import static org.abstractj.kalium.crypto.Util.runAll;
+import static org.abstractj.kalium.encoders.Encoder.RAW;
+
+/**
+ * BLAKE2b tree hashing for large inputs.
+ * <p/>
+ * The input is split into fixed-size chunks whose leaf hashes can be
+ * computed in parallel. Leaves, internal nodes and the root are hashed with
+ * distinct BLAKE2b personalizations, and the salt binds every node to its
+ * level and position, so chunks cannot be reordered or reinterpreted. The
+ * root also covers the total input length.
+ * <p/>
+ * The resulting {@link Tree} keeps every node, so a changed chunk can be
+ * re-hashed by recomputing only its path to the root.
+ */
+public class TreeHash {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private static final byte[] LEAF = RAW.decode("kalium-tree-leaf");
+    private static final byte[] NODE = RAW.decode("kalium-tree-node");
+    private static final byte[] ROOT = RAW.decode("kalium-tree-root");
+
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    public TreeHash() {
+        this(DEFAULT_CHUNK_SIZE, null);
+    }
+
+    public TreeHash(int chunkSize) {
+        this(chunkSize, null);
+    }
+
+    /**
+     * @param chunkSize size of each leaf chunk
+     * @param executor  executor hashing the leaves, or {@code null} to hash
+     *                  them on the calling thread
+     */
+    public TreeHash(int chunkSize, ExecutorService executor) {
+        if (chunkSize <= 0)
+            throw new RuntimeException("Invalid chunk size");
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+    }
+
+    public Tree hash(final byte[] message) {
+        int leafCount = leafCount(message.length);
+        List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>(leafCount);
+        for (int i = 0; i < leafCount; i++) {
+            final int index = i;
+            final int offset = i * chunkSize;
+            final int length = Math.min(chunkSize, message.length - offset);
+            tasks.add(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return leaf(index, ByteBuffer.wrap(message, offset, length));
+                }
+            });
+        }
+        return new Tree(chunkSize, compute(tasks), message.length);
+    }
+
+    /**
+     * Hashes a file, mapping each chunk into memory so it is read by
+     * libsodium without being copied to the heap.
+     */
+    public Tree hash(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            int leafCount = leafCount(size);
+            List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>(leafCount);
+            for (int i = 0; i < leafCount; i++) {
+                final int index = i;
+                final long offset = (long) i * chunkSize;
+                final long length = Math.min(chunkSize, size - offset);
+                tasks.add(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws IOException {
+                        if (length == 0)
+                            return leaf(index, ByteBuffer.allocate(0));
+                        return leaf(index, channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+                    }
+                });
+            }
+            return new Tree(chunkSize, compute(tasks), size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private int leafCount(long length) {
+        long count = (length + chunkSize - 1) / chunkSize;
+        if (count > Integer.MAX_VALUE)
+            throw new RuntimeException("Input too large for chunk size");
+        return (int) Math.max(1, count);
+    }
+
+    private byte[][] compute(List<Callable<byte[]>> tasks) {
+        return runAll(tasks, executor, "Tree hashing").toArray(new byte[tasks.size()][]);
+    }
+
+    private static byte[] leaf(int index, ByteBuffer chunk) {
+        byte[] buffer = new byte[BLAKE2B_OUTBYTES];
+        int length = chunk.remaining();
+        byte[] salt = salt(0, index);
+        int status = chunk.isDirect()
+                ? sodium().crypto_generichash_blake2b_salt_personal(buffer, BLAKE2B_OUTBYTES,
+                        pointer(chunk), length, null, 0, salt, LEAF)
+                : sodium().crypto_generichash_blake2b_salt_personal(buffer, BLAKE2B_OUTBYTES,
+                        chunk, length, null, 0, salt, LEAF);
+        isValid(status, "Hashing failed");
+        return buffer;
+    }
+
+    private static byte[] node(int level, int index, byte[] left, byte[] right) {
+        byte[] children = right == null ? left : Util.merge(left, right);
+        return blake2(children, salt(level, index), NODE);
+    }
+
+    private static byte[] root(int height, byte[] top, long length) {
+        byte[] input = new byte[top.length + 8];
+        System.arraycopy(top, 0, input, 0, top.length);
+        putLong(input, top.length, length);
+        return blake2(input, salt(height, 0), ROOT);
+    }
+
+    private static byte[] blake2(byte[] message, byte[] salt, byte[] personal) {
+        byte[] buffer = new byte[BLAKE2B_OUTBYTES];
+        isValid(sodium().crypto_generichash_blake2b_salt_personal(buffer, BLAKE2B_OUTBYTES,
+                message, message.length, null, 0, salt, personal), "Hashing failed");
+        return buffer;
+    }
+
+    private static byte[] salt(int level, long index) {
+        byte[] salt = new byte[16];
+        putLong(salt, 0, level);
+        putLong(salt, 8, index);
+        return salt;
+    }
+
+    private static void putLong(byte[] buffer, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buffer[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * A hashed tree. Instances are not thread-safe.
+     */
+    public static class Tree {
+
+        private final int chunkSize;
+        private final List<byte[][]> levels = new ArrayList<byte[][]>();
+        private long length;
+        private byte[] root;
+
+        Tree(int chunkSize, byte[][] leaves, long length) {
+            this.chunkSize = chunkSize;
+            this.length = length;
+
+            byte[][] level = leaves;
+            levels.add(level);
+            while (level.length > 1) {
+                byte[][] parents = new byte[(level.length + 1) / 2][];
+                for (int j = 0; j < parents.length; j++) {
+                    parents[j] = parent(levels.size(), j, level);
+                }
+                levels.add(parents);
+                level = parents;
+            }
+            this.root = TreeHash.root(levels.size(), level[0], length);
+        }
+
+        public byte[] root() {
+            return root;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public int leafCount() {
+            return levels.get(0).length;
+        }
+
+        public byte[] leaf(int index) {
+            return levels.get(0)[index];
+        }
+
+        public Tree update(int index, byte[] chunk) {
+            return update(index, chunk, 0, chunk.length);
+        }
+
+        /**
+         * Replaces the contents of one chunk and re-hashes its path to the
+         * root. Every chunk but the last must keep the full chunk size; the
+         * last one may shrink or grow up to the chunk size.
+         */
+        public Tree update(int index, byte[] chunk, int off, int len) {
+            int leafCount = leafCount();
+            if (index < 0 || index >= leafCount)
+                throw new IndexOutOfBoundsException("Invalid chunk index " + index);
+            boolean last = index == leafCount - 1;
+            if (last ? len > chunkSize || (len == 0 && leafCount > 1) : len != chunkSize)
+                throw new RuntimeException("Invalid chunk size");
+
+            levels.get(0)[index] = TreeHash.leaf(index, ByteBuffer.wrap(chunk, off, len));
+            if (last)
+                length = (long) index * chunkSize + len;
+
+            int position = index;
+            for (int level = 1; level < levels.size(); level++) {
+                position >>= 1;
+                levels.get(level)[position] = parent(level, position, levels.get(level - 1));
+            }
+            root = TreeHash.root(levels.size(), levels.get(levels.size() - 1)[0], length);
+            return this;
+        }
+
+        private static byte[] parent(int level, int index, byte[][] children) {
+            int left = index * 2;
+            byte[] right = left + 1 < children.length ? children[left + 1] : null;
+            return node(level, index, children[left], right);
+        }
+    }
+}
@@ -16,7 +16,19 @@
 
 package org.abstractj.kalium.crypto;
 
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.abstractj.kalium.NaCl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class Util {
 
@@ -37,6 +49,46 @@ public class Util {
             throw new RuntimeException("Invalid size");
     }
 
+    /**
+     * Checks that a ciphertext is at least long enough to hold the
+     * authentication tag.
+     */
+    public static void checkCiphertext(byte[] ciphertext) {
+        if (ciphertext == null || ciphertext.length < NaCl.Sodium.MAC_BYTES)
+            throw new RuntimeException("Invalid size");
+    }
+
+    public static void checkRemainingLength(ByteBuffer data, int size) {
+        if (data == null || data.remaining() != size)
+            throw new RuntimeException("Invalid size");
+    }
+
+    public static void checkRemaining(ByteBuffer data, int size) {
+        if (data == null || data.remaining() < size)
+            throw new RuntimeException("Buffer too small");
+    }
+
+    /**
+     * Wraps the remaining bytes of a direct buffer, so its native address can
+     * be handed to libsodium without copying.
+     */
+    public static Pointer pointer(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect())
+            throw new RuntimeException("Direct buffer required");
+        return Pointer.wrap(Runtime.getSystemRuntime(), buffer);
+    }
+
+    /**
+     * Allocates zeroed native memory whose address is a multiple of
+     * {@code alignment}. The memory is released once the returned pointer
+     * is no longer reachable.
+     */
+    public static Pointer allocateAligned(int size, int alignment) {
+        Pointer memory = Memory.allocateDirect(Runtime.getSystemRuntime(), size + alignment - 1, true);
+        long padding = (alignment - (memory.address() % alignment)) % alignment;
+        return memory.slice(padding, size);
+    }
+
     public static byte[] zeros(int n) {
         return new byte[n];
     }
@@ -51,6 +103,40 @@ public class Util {
         return Arrays.copyOfRange(buffer, start, end);
     }
 
+    /**
+     * Runs {@code tasks} on {@code executor}, or one after the other on the
+     * calling thread when it is {@code null}, and returns their results in
+     * order. Failures are rethrown as runtime exceptions whose message starts
+     * with {@code operation}.
+     */
+    public static <T> List<T> runAll(List<? extends Callable<T>> tasks, ExecutorService executor,
+                                     String operation) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : executor.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(operation + " interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(operation + " failed", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(operation + " failed", e);
+        }
+        return results;
+    }
+
     public static byte[] merge(byte[] signature, byte[] message) {
         byte[] result = new byte[signature.length + message.length];
         System.arraycopy(signature, 0, result, 0, signature.length);
@@ -0,0 +1,461 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import static org.abstractj.kalium.encoders.Ranges.checkRange;
+
+/**
+ * Converts Base64 Strings, with the standard or the URL-safe alphabet of
+ * RFC 4648 and with or without padding.
+ * <p/>
+ * Decoding is strict: characters outside the alphabet, whitespace, missing
+ * or unexpected padding and non-zero trailing bits are rejected. Like
+ * {@link Hex}, data can be encoded into and decoded from caller-provided
+ * arrays and buffers, and streams can be encoded or decoded on the fly.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class Base64 implements StreamingEncoder {
+
+    private static final char[] STANDARD_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char[] URL_SAFE_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private static final char PAD = '=';
+
+    /**
+     * Bytes encoded at a time when appending, a whole number of groups
+     */
+    private static final int APPEND_CHUNK = 3 * 256;
+
+    /**
+     * Per-thread space for the characters of one appended chunk
+     */
+    private static final ThreadLocal<char[]> APPEND_SCRATCH = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[APPEND_CHUNK / 3 * 4];
+        }
+    };
+
+    // Declared after the alphabets, which the constructor reads
+    public static final Base64 STANDARD = new Base64(false, true);
+    public static final Base64 STANDARD_NO_PADDING = new Base64(false, false);
+    public static final Base64 URL_SAFE = new Base64(true, true);
+    public static final Base64 URL_SAFE_NO_PADDING = new Base64(true, false);
+
+    private final char[] alphabet;
+    private final byte[] values = new byte[128];
+    private final boolean padding;
+
+    private Base64(boolean urlSafe, boolean padding) {
+        this.alphabet = urlSafe ? URL_SAFE_ALPHABET : STANDARD_ALPHABET;
+        this.padding = padding;
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            values[alphabet[i]] = (byte) i;
+        }
+    }
+
+    /**
+     * Returns the number of characters needed to encode {@code length} bytes.
+     */
+    public int encodedLength(int length) {
+        int rest = length % 3;
+        int full = (length / 3) * 4;
+        if (rest == 0)
+            return full;
+        return full + (padding ? 4 : rest + 1);
+    }
+
+    @Override
+    public String encode(final byte[] data) {
+        final char[] out = new char[encodedLength(data.length)];
+        encodeTo(data, 0, data.length, out, 0);
+        return new String(out);
+    }
+
+    /**
+     * Encodes {@code len} bytes of {@code in} starting at {@code off} into {@code out} at {@code outOff}.
+     *
+     * @return the number of characters written
+     */
+    public int encodeTo(final byte[] in, final int off, final int len, final char[] out, final int outOff) {
+        checkRange(in.length, off, len);
+        final int n = encodedLength(len);
+        checkRange(out.length, outOff, n);
+        int i = off;
+        int j = outOff;
+        for (final int end = off + len - len % 3; i < end; i += 3, j += 4) {
+            final int bits = (in[i] & 0xFF) << 16 | (in[i + 1] & 0xFF) << 8 | (in[i + 2] & 0xFF);
+            out[j] = alphabet[bits >>> 18];
+            out[j + 1] = alphabet[(bits >>> 12) & 0x3F];
+            out[j + 2] = alphabet[(bits >>> 6) & 0x3F];
+            out[j + 3] = alphabet[bits & 0x3F];
+        }
+        final int rest = off + len - i;
+        if (rest > 0) {
+            final int bits = (in[i] & 0xFF) << 16 | (rest == 2 ? (in[i + 1] & 0xFF) << 8 : 0);
+            out[j++] = alphabet[bits >>> 18];
+            out[j++] = alphabet[(bits >>> 12) & 0x3F];
+            if (rest == 2)
+                out[j++] = alphabet[(bits >>> 6) & 0x3F];
+            if (padding) {
+                out[j++] = PAD;
+                if (rest == 1)
+                    out[j] = PAD;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Encodes the remaining bytes of {@code in} into {@code out} at {@code outOff}, advancing the position of
+     * {@code in}.
+     *
+     * @return the number of characters written
+     */
+    public int encodeTo(final ByteBuffer in, final char[] out, final int outOff) {
+        final int len = in.remaining();
+        final int n;
+        if (in.hasArray()) {
+            n = encodeTo(in.array(), in.arrayOffset() + in.position(), len, out, outOff);
+        } else {
+            final byte[] copy = new byte[len];
+            in.duplicate().get(copy);
+            n = encodeTo(copy, 0, len, out, outOff);
+        }
+        in.position(in.limit());
+        return n;
+    }
+
+    @Override
+    public void encodeTo(final byte[] in, final int off, final int len, final Appendable out) throws IOException {
+        checkRange(in.length, off, len);
+        final char[] chars = APPEND_SCRATCH.get();
+        for (int i = off; i < off + len; ) {
+            // Whole groups only, except for the last chunk
+            final int n = Math.min(off + len - i, APPEND_CHUNK);
+            append(out, chars, encodeTo(in, i, n, chars, 0));
+            i += n;
+        }
+    }
+
+    private static void append(final Appendable out, final char[] chars, final int count) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(chars, 0, count);
+        } else if (out instanceof Writer) {
+            ((Writer) out).write(chars, 0, count);
+        } else {
+            out.append(CharBuffer.wrap(chars, 0, count));
+        }
+    }
+
+    @Override
+    public void encodeTo(final ByteBuffer in, final Appendable out) throws IOException {
+        if (in.hasArray()) {
+            encodeTo(in.array(), in.arrayOffset() + in.position(), in.remaining(), out);
+        } else {
+            final byte[] copy = new byte[in.remaining()];
+            in.duplicate().get(copy);
+            encodeTo(copy, 0, copy.length, out);
+        }
+        in.position(in.limit());
+    }
+
+    @Override
+    public byte[] decode(final String value) {
+        return decode((CharSequence) value);
+    }
+
+    /**
+     * Converts a sequence of Base64 characters into the bytes it represents.
+     *
+     * @param value Base64 characters, or {@code null} for no data
+     */
+    public byte[] decode(final CharSequence value) {
+        if (value == null)
+            return new byte[0];
+        final byte[] out = new byte[decodedLength(value, 0, value.length())];
+        decodeFrom(value, 0, value.length(), out, 0);
+        return out;
+    }
+
+    /**
+     * Returns the number of bytes encoded by {@code len} characters of {@code in} starting at {@code off}.
+     */
+    public int decodedLength(final CharSequence in, final int off, final int len) {
+        checkRange(in.length(), off, len);
+        int pad = 0;
+        while (pad < 2 && pad < len && in.charAt(off + len - 1 - pad) == PAD) {
+            pad++;
+        }
+        final int chars = len - pad;
+        if (chars % 4 == 1)
+            throw new RuntimeException("Invalid Base64 length " + len);
+        if (padding ? (len % 4 != 0 || (pad > 0 && (chars % 4) + pad != 4)) : pad > 0)
+            throw new RuntimeException("Invalid Base64 padding");
+        return (chars / 4) * 3 + (chars % 4 == 0 ? 0 : chars % 4 - 1);
+    }
+
+    /**
+     * Decodes {@code len} Base64 characters of {@code in} starting at {@code off} into {@code out} at
+     * {@code outOff}.
+     *
+     * @return the number of bytes written
+     */
+    @Override
+    public int decodeFrom(final CharSequence in, final int off, final int len, final byte[] out, final int outOff) {
+        final int n = decodedLength(in, off, len);
+        checkRange(out.length, outOff, n);
+        int i = off;
+        int j = outOff;
+        for (final int end = off + (n / 3) * 4; i < end; i += 4, j += 3) {
+            final int bits = value(in, i) << 18 | value(in, i + 1) << 12 | value(in, i + 2) << 6 | value(in, i + 3);
+            out[j] = (byte) (bits >>> 16);
+            out[j + 1] = (byte) (bits >>> 8);
+            out[j + 2] = (byte) bits;
+        }
+        final int rest = n % 3;
+        if (rest > 0) {
+            int bits = value(in, i) << 18 | value(in, i + 1) << 12;
+            if (rest == 2)
+                bits |= value(in, i + 2) << 6;
+            if ((bits & (rest == 1 ? 0xFFFF : 0xFF)) != 0)
+                throw new RuntimeException("Non-zero trailing bits at index " + (i + rest));
+            out[j] = (byte) (bits >>> 16);
+            if (rest == 2)
+                out[j + 1] = (byte) (bits >>> 8);
+        }
+        return n;
+    }
+
+    /**
+     * Decodes {@code len} Base64 characters of {@code in} starting at {@code off} into {@code out}, advancing its
+     * position.
+     *
+     * @return the number of bytes written
+     */
+    @Override
+    public int decodeFrom(final CharSequence in, final int off, final int len, final ByteBuffer out) {
+        final int n = decodedLength(in, off, len);
+        if (out.remaining() < n)
+            throw new RuntimeException("Buffer too small");
+        if (out.hasArray()) {
+            decodeFrom(in, off, len, out.array(), out.arrayOffset() + out.position());
+        } else {
+            final byte[] decoded = new byte[n];
+            decodeFrom(in, off, len, decoded, 0);
+            out.duplicate().put(decoded);
+        }
+        out.position(out.position() + n);
+        return n;
+    }
+
+    /**
+     * Returns a stream that Base64-encodes the bytes written to it and writes the characters to {@code out} as
+     * ASCII. Closing it writes the final, possibly padded, group and closes {@code out}.
+     */
+    public OutputStream encodingStream(final OutputStream out) {
+        return new EncodingStream(out);
+    }
+
+    /**
+     * Returns a stream that decodes the ASCII Base64 characters written to it and writes the bytes to
+     * {@code out}. Closing it decodes the final group and closes {@code out}.
+     */
+    public OutputStream decodingStream(final OutputStream out) {
+        return new DecodingStream(out);
+    }
+
+    /**
+     * Decodes {@code len} ASCII Base64 characters of {@code in}, a whole number of unpadded groups, into
+     * {@code out}.
+     *
+     * @return the number of bytes written
+     */
+    private int decodeGroups(final byte[] in, final int len, final byte[] out) {
+        int j = 0;
+        for (int i = 0; i < len; i += 4, j += 3) {
+            final int bits = value(in, i) << 18 | value(in, i + 1) << 12 | value(in, i + 2) << 6 | value(in, i + 3);
+            out[j] = (byte) (bits >>> 16);
+            out[j + 1] = (byte) (bits >>> 8);
+            out[j + 2] = (byte) bits;
+        }
+        return j;
+    }
+
+    private int value(final CharSequence in, final int index) {
+        return value(in.charAt(index), index);
+    }
+
+    private int value(final byte[] in, final int index) {
+        return value((char) (in[index] & 0xFF), index);
+    }
+
+    private int value(final char ch, final int index) {
+        final int value = ch < values.length ? values[ch] : -1;
+        if (value == -1)
+            throw new RuntimeException("Illegal Base64 character " + ch + " at index " + index);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[alphabet=" + (alphabet == URL_SAFE_ALPHABET ? "url" : "standard")
+                + ", padding=" + padding + "]";
+    }
+
+    /**
+     * Groups written bytes into blocks of whole 3-byte groups, encodes them
+     * and writes the characters as ASCII.
+     */
+    private class EncodingStream extends FilterOutputStream {
+
+        private static final int BLOCK = 3 * 1024;
+
+        private final byte[] pending = new byte[BLOCK];
+        private final char[] chars = new char[BLOCK / 3 * 4];
+        private final byte[] ascii = new byte[BLOCK / 3 * 4];
+        private int count;
+        private boolean closed;
+
+        private EncodingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            pending[count++] = (byte) b;
+            if (count == BLOCK)
+                emit(BLOCK);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkRange(b.length, off, len);
+            while (len > 0) {
+                int n = Math.min(len, BLOCK - count);
+                System.arraycopy(b, off, pending, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == BLOCK)
+                    emit(BLOCK);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Only whole groups can be written before the end of the data
+            emit(count - count % 3);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            emit(count);
+            out.close();
+        }
+
+        private void emit(int len) throws IOException {
+            if (len == 0)
+                return;
+            int n = encodeTo(pending, 0, len, chars, 0);
+            for (int i = 0; i < n; i++) {
+                ascii[i] = (byte) chars[i];
+            }
+            out.write(ascii, 0, n);
+            count -= len;
+            System.arraycopy(pending, len, pending, 0, count);
+        }
+    }
+
+    /**
+     * Groups written characters into blocks of whole 4-character groups and
+     * decodes them. The last group, which may be partial or padded, is
+     * decoded on close.
+     */
+    private class DecodingStream extends FilterOutputStream {
+
+        private static final int BLOCK = 4 * 1024;
+
+        // Holds back the last group, since it may be the padded one
+        private final byte[] pending = new byte[BLOCK + 4];
+        private final byte[] decoded = new byte[BLOCK / 4 * 3];
+        private int count;
+        private boolean closed;
+
+        private DecodingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            pending[count++] = (byte) b;
+            if (count == pending.length)
+                emit();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkRange(b.length, off, len);
+            while (len > 0) {
+                int n = Math.min(len, pending.length - count);
+                System.arraycopy(b, off, pending, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == pending.length)
+                    emit();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            int last = count % 4 == 0 ? Math.min(count, 4) : count % 4;
+            out.write(decoded, 0, decodeGroups(pending, count - last, decoded));
+            char[] group = new char[last];
+            for (int i = 0; i < last; i++) {
+                group[i] = (char) (pending[count - last + i] & 0xFF);
+            }
+            out.write(decoded, 0, decodeFrom(CharBuffer.wrap(group), 0, last, decoded, 0));
+            out.close();
+        }
+
+        private void emit() throws IOException {
+            out.write(decoded, 0, decodeGroups(pending, BLOCK, decoded));
+            System.arraycopy(pending, BLOCK, pending, 0, 4);
+            count = 4;
+        }
+    }
+}
@@ -24,6 +24,8 @@ public interface Encoder {
 
     public static final Hex HEX = new Hex();
     public static final Raw RAW = new Raw();
+    public static final Base64 BASE64 = Base64.STANDARD;
+    public static final Base64 BASE64_URL = Base64.URL_SAFE_NO_PADDING;
 
     public byte[] decode(String data);
 
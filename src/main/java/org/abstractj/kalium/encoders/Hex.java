@@ -17,15 +17,26 @@
 
 package org.abstractj.kalium.encoders;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.abstractj.kalium.encoders.Ranges.checkRange;
+
 /**
  * Converts hexadecimal Strings.
  * <p/>
+ * Encoding and decoding are table driven. Besides the {@link Encoder}
+ * methods, data can be encoded into and decoded from caller-provided
+ * arrays and buffers without intermediate copies. Large inputs to
+ * {@link #encode(byte[])} and {@link #decode(CharSequence)} are converted
+ * by {@link HexBulk}, which is vectorized on JDK 17 and later.
+ * <p/>
  * This class is thread-safe.
  *
  * @version $Id$
  * @since 1.1
  */
-public class Hex implements Encoder {
+public class Hex implements StreamingEncoder {
 
     /**
      * Used to build output as Hex
@@ -34,93 +45,123 @@ public class Hex implements Encoder {
             {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
 
     /**
-     * Used to build output as Hex
+     * Both lowercase digits of every byte value, indexed by {@code 2 * (b & 0xFF)}
      */
-    private static final char[] DIGITS_UPPER =
-            {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+    private static final char[] PAIRS = new char[512];
 
     /**
-     * Converts an array of characters representing hexadecimal values into an array of bytes of those same values. The
-     * returned array will be half the length of the passed array, as it takes two characters to represent any given
-     * byte. An exception is thrown if the passed char array has an odd number of elements.
-     *
-     * @param data An array of characters containing hexadecimal digits
-     * @return A byte array containing binary data decoded from the supplied char array.
+     * Value of every ASCII hexadecimal digit, or -1 for other characters
      */
-    private static byte[] decodeHex(final char[] data) {
-
-        final int len = (data == null) ? 0 : data.length;
+    private static final byte[] VALUES = new byte[128];
 
-        if ((len & 0x01) != 0) {
-            throw new RuntimeException("Odd number of characters.");
-        }
+    /**
+     * Input size, in bytes, from which {@link HexBulk} is used when available
+     */
+    static final int BULK_THRESHOLD = 256;
 
-        final byte[] out = new byte[len >> 1];
+    /**
+     * Characters of a String copied at a time for {@link HexBulk} to decode
+     */
+    private static final int BULK_CHUNK = 1024;
 
-        // two characters form the hex value.
-        for (int i = 0, j = 0; j < len; i++) {
-            int f = toDigit(data[j], j) << 4;
-            j++;
-            f = f | toDigit(data[j], j);
-            j++;
-            out[i] = (byte) (f & 0xFF);
+    static {
+        for (int i = 0; i < 256; i++) {
+            PAIRS[2 * i] = DIGITS_LOWER[i >>> 4];
+            PAIRS[2 * i + 1] = DIGITS_LOWER[i & 0x0F];
+        }
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = (byte) Character.digit((char) i, 16);
         }
-
-        return out;
     }
 
     @Override
     public byte[] decode(final String value) {
+        return decode((CharSequence) value);
+    }
 
-        char[] data = value != null ? value.toCharArray() : new char[0];
-        return decodeHex(data);
+    /**
+     * Converts a sequence of hexadecimal characters into the bytes it represents.
+     *
+     * @param value hexadecimal characters, or {@code null} for no data
+     * @return A byte array containing binary data decoded from the supplied characters.
+     */
+    public byte[] decode(final CharSequence value) {
+        final int len = (value == null) ? 0 : value.length();
+        checkEven(len);
+        final byte[] out = new byte[len >> 1];
+        int done = 0;
+        if (value instanceof String && len >= 2 * BULK_THRESHOLD && HexBulk.isAvailable()) {
+            done = decodeBulk((String) value, len, out);
+        }
+        if (done < len) {
+            // Also reports the exact position of an invalid character the
+            // bulk decoder stopped at
+            decodeFrom(value, done, len - done, out, done >> 1);
+        }
+        return out;
     }
 
     /**
-     * Converts an array of bytes into an array of characters representing the hexadecimal values of each byte in order.
-     * The returned array will be double the length of the passed array, as it takes two characters to represent any
-     * given byte.
+     * Decodes a prefix of {@code value} with {@link HexBulk}, copying it a
+     * chunk at a time so that large inputs are never copied whole.
      *
-     * @param data a byte[] to convert to Hex characters
-     * @return A char[] containing hexadecimal characters
+     * @return the number of characters decoded
      */
-    private static char[] encodeHex(final byte[] data) {
-        return encodeHex(data, true);
+    private static int decodeBulk(final String value, final int len, final byte[] out) {
+        final char[] chunk = new char[Math.min(len, BULK_CHUNK)];
+        int done = 0;
+        while (done < len) {
+            final int n = Math.min(len - done, chunk.length);
+            value.getChars(done, done + n, chunk, 0);
+            final int decoded = HexBulk.decode(chunk, 0, n, out, done >> 1);
+            done += decoded;
+            if (decoded < n)
+                break;
+        }
+        return done;
     }
 
     /**
-     * Converts an array of bytes into an array of characters representing the hexadecimal values of each byte in order.
-     * The returned array will be double the length of the passed array, as it takes two characters to represent any
-     * given byte.
+     * Decodes {@code len} hexadecimal characters of {@code in} starting at {@code off} into {@code out} at
+     * {@code outOff}.
      *
-     * @param data        a byte[] to convert to Hex characters
-     * @param toLowerCase {@code true} converts to lowercase, {@code false} to uppercase
-     * @return A char[] containing hexadecimal characters
-     * @since 1.4
+     * @return the number of bytes written
      */
-    private static char[] encodeHex(final byte[] data, final boolean toLowerCase) {
-        return encodeHex(data, toLowerCase ? DIGITS_LOWER : DIGITS_UPPER);
+    @Override
+    public int decodeFrom(final CharSequence in, final int off, final int len, final byte[] out, final int outOff) {
+        checkEven(len);
+        checkRange(in.length(), off, len);
+        final int n = len >> 1;
+        checkRange(out.length, outOff, n);
+        for (int i = 0, j = off; i < n; i++, j += 2) {
+            out[outOff + i] = (byte) ((toDigit(in.charAt(j), j) << 4) | toDigit(in.charAt(j + 1), j + 1));
+        }
+        return n;
     }
 
     /**
-     * Converts an array of bytes into an array of characters representing the hexadecimal values of each byte in order.
-     * The returned array will be double the length of the passed array, as it takes two characters to represent any
-     * given byte.
+     * Decodes {@code len} hexadecimal characters of {@code in} starting at {@code off} into {@code out}, advancing
+     * its position.
      *
-     * @param data     a byte[] to convert to Hex characters
-     * @param toDigits the output alphabet
-     * @return A char[] containing hexadecimal characters
-     * @since 1.4
+     * @return the number of bytes written
      */
-    private static char[] encodeHex(final byte[] data, final char[] toDigits) {
-        final int l = data.length;
-        final char[] out = new char[l << 1];
-        // two characters form the hex value.
-        for (int i = 0, j = 0; i < l; i++) {
-            out[j++] = toDigits[(0xF0 & data[i]) >>> 4];
-            out[j++] = toDigits[0x0F & data[i]];
+    @Override
+    public int decodeFrom(final CharSequence in, final int off, final int len, final ByteBuffer out) {
+        checkEven(len);
+        checkRange(in.length(), off, len);
+        final int n = len >> 1;
+        if (out.remaining() < n) {
+            throw new RuntimeException("Buffer too small");
         }
-        return out;
+        if (out.hasArray()) {
+            decodeFrom(in, off, len, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + n);
+            return n;
+        }
+        for (int j = off; j < off + len; j += 2) {
+            out.put((byte) ((toDigit(in.charAt(j), j) << 4) | toDigit(in.charAt(j + 1), j + 1)));
+        }
+        return n;
     }
 
     /**
@@ -133,7 +174,83 @@ public class Hex implements Encoder {
      */
     @Override
     public String encode(final byte[] data) {
-        return new String(encodeHex(data));
+        if (data.length >= BULK_THRESHOLD && HexBulk.isAvailable()) {
+            final byte[] ascii = new byte[data.length << 1];
+            final int done = HexBulk.encode(data, 0, data.length, ascii, 0);
+            for (int i = done, j = done << 1; i < data.length; i++, j += 2) {
+                final int pair = (data[i] & 0xFF) << 1;
+                ascii[j] = (byte) PAIRS[pair];
+                ascii[j + 1] = (byte) PAIRS[pair + 1];
+            }
+            return new String(ascii, CHARSET);
+        }
+        final char[] out = new char[data.length << 1];
+        encodeTo(data, 0, data.length, out, 0);
+        return new String(out);
+    }
+
+    /**
+     * Writes the lowercase hexadecimal characters of {@code len} bytes of {@code in} starting at {@code off} into
+     * {@code out} at {@code outOff}.
+     *
+     * @return the number of characters written
+     */
+    public int encodeTo(final byte[] in, final int off, final int len, final char[] out, final int outOff) {
+        checkRange(in.length, off, len);
+        checkRange(out.length, outOff, len << 1);
+        for (int i = off, j = outOff; i < off + len; i++, j += 2) {
+            final int pair = (in[i] & 0xFF) << 1;
+            out[j] = PAIRS[pair];
+            out[j + 1] = PAIRS[pair + 1];
+        }
+        return len << 1;
+    }
+
+    /**
+     * Writes the lowercase hexadecimal characters of the remaining bytes of {@code in} into {@code out} at
+     * {@code outOff}, advancing the position of {@code in}.
+     *
+     * @return the number of characters written
+     */
+    public int encodeTo(final ByteBuffer in, final char[] out, final int outOff) {
+        final int len = in.remaining();
+        if (in.hasArray()) {
+            encodeTo(in.array(), in.arrayOffset() + in.position(), len, out, outOff);
+            in.position(in.limit());
+            return len << 1;
+        }
+        checkRange(out.length, outOff, len << 1);
+        for (int j = outOff; in.hasRemaining(); j += 2) {
+            final int pair = (in.get() & 0xFF) << 1;
+            out[j] = PAIRS[pair];
+            out[j + 1] = PAIRS[pair + 1];
+        }
+        return len << 1;
+    }
+
+    @Override
+    public void encodeTo(final byte[] in, final int off, final int len, final Appendable out) throws IOException {
+        checkRange(in.length, off, len);
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).ensureCapacity(((StringBuilder) out).length() + (len << 1));
+        }
+        for (int i = off; i < off + len; i++) {
+            final int pair = (in[i] & 0xFF) << 1;
+            out.append(PAIRS[pair]).append(PAIRS[pair + 1]);
+        }
+    }
+
+    @Override
+    public void encodeTo(final ByteBuffer in, final Appendable out) throws IOException {
+        if (in.hasArray()) {
+            encodeTo(in.array(), in.arrayOffset() + in.position(), in.remaining(), out);
+            in.position(in.limit());
+            return;
+        }
+        while (in.hasRemaining()) {
+            final int pair = (in.get() & 0xFF) << 1;
+            out.append(PAIRS[pair]).append(PAIRS[pair + 1]);
+        }
     }
 
     /**
@@ -144,13 +261,19 @@ public class Hex implements Encoder {
      * @return An integer
      */
     private static int toDigit(final char ch, final int index) {
-        final int digit = Character.digit(ch, 16);
+        final int digit = ch < VALUES.length ? VALUES[ch] : -1;
         if (digit == -1) {
             throw new RuntimeException("Illegal hexadecimal character " + ch + " at index " + index);
         }
         return digit;
     }
 
+    private static void checkEven(final int len) {
+        if ((len & 0x01) != 0) {
+            throw new RuntimeException("Odd number of characters.");
+        }
+    }
+
     /**
      * Returns a string representation of the object, which includes the charset name.
      *
@@ -160,4 +283,4 @@ public class Hex implements Encoder {
     public String toString() {
         return super.toString() + "[charsetName=" + CHARSET + "]";
     }
-}
\ No newline at end of file
+}
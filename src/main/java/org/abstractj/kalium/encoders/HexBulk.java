@@ -0,0 +1,55 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+/**
+ * Bulk hexadecimal conversion of ASCII data, used by {@link Hex} for large
+ * inputs.
+ * <p/>
+ * This is the portable version, which converts nothing and leaves all the
+ * work to the table-driven code in {@link Hex}. Multi-release JARs built on
+ * JDK 17 replace it with a vectorized version.
+ */
+final class HexBulk {
+
+    private HexBulk() {
+    }
+
+    static boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * Encodes a prefix of {@code len} bytes of {@code in} into lowercase
+     * ASCII digits in {@code out}.
+     *
+     * @return the number of input bytes encoded
+     */
+    static int encode(byte[] in, int off, int len, byte[] out, int outOff) {
+        return 0;
+    }
+
+    /**
+     * Decodes a prefix of {@code len} hexadecimal digits of {@code in} into
+     * {@code out}, stopping before any block holding an invalid digit.
+     *
+     * @return the number of input characters decoded, always even
+     */
+    static int decode(char[] in, int off, int len, byte[] out, int outOff) {
+        return 0;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+/**
+ * Argument checks shared by the encoders.
+ */
+final class Ranges {
+
+    private Ranges() {
+    }
+
+    /**
+     * Checks that {@code len} elements starting at {@code off} fit in an
+     * array or sequence of {@code length} elements.
+     */
+    static void checkRange(final int length, final int off, final int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new RuntimeException("Invalid size");
+        }
+    }
+}
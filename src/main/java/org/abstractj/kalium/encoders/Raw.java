@@ -16,7 +16,14 @@
 
 package org.abstractj.kalium.encoders;
 
-public class Raw implements Encoder {
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.abstractj.kalium.encoders.Ranges.checkRange;
+
+public class Raw implements StreamingEncoder {
+
+    private static final char REPLACEMENT = '\uFFFD';
 
     public byte[] decode(final String data) {
         return data != null ? data.getBytes(CHARSET) : null;
@@ -26,4 +33,75 @@ public class Raw implements Encoder {
     public String encode(byte[] data) {
         return data != null ? new String(data, CHARSET) : null;
     }
+
+    @Override
+    public void encodeTo(final byte[] in, final int off, final int len, final Appendable out) throws IOException {
+        checkRange(in.length, off, len);
+        for (int i = off; i < off + len; i++) {
+            out.append(toChar(in[i]));
+        }
+    }
+
+    @Override
+    public void encodeTo(final ByteBuffer in, final Appendable out) throws IOException {
+        while (in.hasRemaining()) {
+            out.append(toChar(in.get()));
+        }
+    }
+
+    @Override
+    public int decodeFrom(final CharSequence in, final int off, final int len, final byte[] out, final int outOff) {
+        checkRange(in.length(), off, len);
+        // Only count surrogate pairs when the output is smaller than the input
+        checkRange(out.length, outOff, outOff >= 0 && out.length - outOff >= len ? len : decodedLength(in, off, len));
+        int j = outOff;
+        for (int i = off; i < off + len; i++) {
+            out[j++] = toByte(in.charAt(i));
+            if (isPair(in, i, off + len))
+                i++;
+        }
+        return j - outOff;
+    }
+
+    @Override
+    public int decodeFrom(final CharSequence in, final int off, final int len, final ByteBuffer out) {
+        checkRange(in.length(), off, len);
+        if (out.remaining() < len && out.remaining() < decodedLength(in, off, len)) {
+            throw new RuntimeException("Buffer too small");
+        }
+        final int start = out.position();
+        for (int i = off; i < off + len; i++) {
+            out.put(toByte(in.charAt(i)));
+            if (isPair(in, i, off + len))
+                i++;
+        }
+        return out.position() - start;
+    }
+
+    // Same mapping as the US-ASCII charset used by encode and decode
+    private static char toChar(final byte b) {
+        return b >= 0 ? (char) b : REPLACEMENT;
+    }
+
+    private static byte toByte(final char c) {
+        return c < 0x80 ? (byte) c : (byte) '?';
+    }
+
+    // A surrogate pair is one unmappable character, encoded as a single '?'
+    private static boolean isPair(final CharSequence in, final int i, final int end) {
+        return Character.isHighSurrogate(in.charAt(i)) && i + 1 < end && Character.isLowSurrogate(in.charAt(i + 1));
+    }
+
+    /**
+     * Returns the number of bytes {@code len} characters of {@code in} starting at {@code off} decode to.
+     */
+    public int decodedLength(final CharSequence in, final int off, final int len) {
+        checkRange(in.length(), off, len);
+        int n = 0;
+        for (int i = off; i < off + len; i++, n++) {
+            if (isPair(in, i, off + len))
+                i++;
+        }
+        return n;
+    }
 }
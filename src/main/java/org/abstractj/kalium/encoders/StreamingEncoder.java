@@ -0,0 +1,59 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link Encoder} that can write into and read from caller-provided
+ * targets, so encoded values never have to be materialized as Strings.
+ * <p/>
+ * Implemented by {@link Hex}, {@link Raw} and {@link Base64}. It extends
+ * {@link Encoder} instead of adding to it so that existing Encoder
+ * implementations keep compiling.
+ */
+public interface StreamingEncoder extends Encoder {
+
+    /**
+     * Appends the encoding of {@code len} bytes of {@code in} starting at
+     * {@code off} to {@code out}.
+     */
+    public void encodeTo(byte[] in, int off, int len, Appendable out) throws IOException;
+
+    /**
+     * Appends the encoding of the remaining bytes of {@code in} to
+     * {@code out}, advancing the position of {@code in}.
+     */
+    public void encodeTo(ByteBuffer in, Appendable out) throws IOException;
+
+    /**
+     * Decodes {@code len} characters of {@code in} starting at {@code off}
+     * into {@code out} at {@code outOff}.
+     *
+     * @return the number of bytes written
+     */
+    public int decodeFrom(CharSequence in, int off, int len, byte[] out, int outOff);
+
+    /**
+     * Decodes {@code len} characters of {@code in} starting at {@code off}
+     * into {@code out}, advancing its position.
+     *
+     * @return the number of bytes written
+     */
+    public int decodeFrom(CharSequence in, int off, int len, ByteBuffer out);
+}
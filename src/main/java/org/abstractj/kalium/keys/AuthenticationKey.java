@@ -18,6 +18,8 @@ package org.abstractj.kalium.keys;
 
 import org.abstractj.kalium.encoders.Encoder;
 
+import java.nio.ByteBuffer;
+
 import static org.abstractj.kalium.NaCl.Sodium.HMACSHA512256_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.HMACSHA512256_KEYBYTES;
 import static org.abstractj.kalium.NaCl.sodium;
@@ -45,6 +47,18 @@ public class AuthenticationKey implements Key {
         return mac;
     }
 
+    /**
+     * Authenticates {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the MAC into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code HMACSHA512256_BYTES}
+     */
+    public int sign(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        sodium().crypto_auth_hmacsha512256(ByteBuffer.wrap(out, outOff, HMACSHA512256_BYTES),
+                ByteBuffer.wrap(in, inOff, inLen), inLen, key);
+        return HMACSHA512256_BYTES;
+    }
+
     public String sign(String message, Encoder encoder) {
         byte[] signature = sign(encoder.decode(message));
         return encoder.encode(signature);
@@ -55,6 +69,11 @@ public class AuthenticationKey implements Key {
         return isValid(sodium().crypto_auth_hmacsha512256_verify(signature, message, message.length, key), "signature was forged or corrupted");
     }
 
+    public boolean verify(byte[] in, int inOff, int inLen, byte[] signature, int sigOff) {
+        ByteBuffer mac = ByteBuffer.wrap(signature, sigOff, HMACSHA512256_BYTES);
+        return isValid(sodium().crypto_auth_hmacsha512256_verify(mac, ByteBuffer.wrap(in, inOff, inLen), inLen, key), "signature was forged or corrupted");
+    }
+
     public boolean verify(String message, String signature, Encoder encoder) {
         return verify(encoder.decode(message), encoder.decode(signature));
     }
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.keys;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import static org.abstractj.kalium.crypto.Util.runAll;
+
+/**
+ * Verifies many Ed25519 signatures at once.
+ * <p/>
+ * Items are split into batches that are verified concurrently on the given
+ * executor. Forged signatures are reported in the result instead of being
+ * thrown, so a single bad item does not abort the rest of the batch.
+ */
+public class BatchVerifier {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    public BatchVerifier() {
+        this(DEFAULT_BATCH_SIZE, null);
+    }
+
+    public BatchVerifier(ExecutorService executor) {
+        this(DEFAULT_BATCH_SIZE, executor);
+    }
+
+    /**
+     * @param batchSize number of items verified by each task
+     * @param executor  executor running the batches, or {@code null} to
+     *                  verify them on the calling thread
+     */
+    public BatchVerifier(int batchSize, ExecutorService executor) {
+        if (batchSize <= 0)
+            throw new RuntimeException("Invalid batch size");
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a bit set whose bit {@code i} is set when the signature of
+     * {@code items.get(i)} is valid.
+     */
+    public BitSet verifyAll(List<SignedItem> items) {
+        final SignedItem[] batch = items.toArray(new SignedItem[items.size()]);
+        // Tasks write disjoint ranges; invokeAll publishes them to this thread
+        final boolean[] valid = new boolean[batch.length];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < batch.length; start += batchSize) {
+            final int from = start;
+            final int to = Math.min(start + batchSize, batch.length);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = from; i < to; i++) {
+                        SignedItem item = batch[i];
+                        valid[i] = item.key.check(item.message, item.signature);
+                    }
+                    return null;
+                }
+            });
+        }
+        runAll(tasks, executor, "Batch verification");
+
+        BitSet results = new BitSet(valid.length);
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i])
+                results.set(i);
+        }
+        return results;
+    }
+
+    /**
+     * A message, its detached signature and the key expected to have
+     * signed it.
+     */
+    public static class SignedItem {
+
+        private final VerifyKey key;
+        private final byte[] message;
+        private final byte[] signature;
+
+        public SignedItem(VerifyKey key, byte[] message, byte[] signature) {
+            this.key = key;
+            this.message = message;
+            this.signature = signature;
+        }
+
+        public VerifyKey getKey() {
+            return key;
+        }
+
+        public byte[] getMessage() {
+            return message;
+        }
+
+        public byte[] getSignature() {
+            return signature;
+        }
+    }
+}
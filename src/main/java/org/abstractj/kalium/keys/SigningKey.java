@@ -16,18 +16,17 @@
 
 package org.abstractj.kalium.keys;
 
-import jnr.ffi.byref.LongLongByReference;
 import org.abstractj.kalium.crypto.Random;
-import org.abstractj.kalium.crypto.Util;
 import org.abstractj.kalium.encoders.Encoder;
 
+import java.nio.ByteBuffer;
+
 import static org.abstractj.kalium.NaCl.Sodium.PUBLICKEY_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.SECRETKEY_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.SIGNATURE_BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
 import static org.abstractj.kalium.crypto.Util.checkLength;
 import static org.abstractj.kalium.crypto.Util.isValid;
-import static org.abstractj.kalium.crypto.Util.slice;
 import static org.abstractj.kalium.crypto.Util.zeros;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 
@@ -61,13 +60,25 @@ public class SigningKey {
     }
 
     public byte[] sign(byte[] message) {
-        byte[] signature = Util.prependZeros(SIGNATURE_BYTES, message);
-        LongLongByReference bufferLen = new LongLongByReference(0);
-        sodium().crypto_sign_ed25519(signature, bufferLen, message, message.length, secretKey);
-        signature = slice(signature, 0, SIGNATURE_BYTES);
+        byte[] signature = new byte[SIGNATURE_BYTES];
+        isValid(sodium().crypto_sign_ed25519_detached(signature, null, message, message.length, secretKey),
+                "Signing failed");
         return signature;
     }
 
+    /**
+     * Signs {@code inLen} bytes of {@code in} starting at {@code inOff},
+     * writing the detached signature into {@code out} starting at {@code outOff}.
+     *
+     * @return the number of bytes written, {@code SIGNATURE_BYTES}
+     */
+    public int sign(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        ByteBuffer signature = ByteBuffer.wrap(out, outOff, SIGNATURE_BYTES);
+        isValid(sodium().crypto_sign_ed25519_detached(signature, null,
+                ByteBuffer.wrap(in, inOff, inLen), inLen, secretKey), "Signing failed");
+        return SIGNATURE_BYTES;
+    }
+
     public String sign(String message, Encoder encoder) {
         byte[] signature = sign(encoder.decode(message));
         return encoder.encode(signature);
@@ -16,16 +16,17 @@
 
 package org.abstractj.kalium.keys;
 
-import jnr.ffi.byref.LongLongByReference;
 import org.abstractj.kalium.encoders.Encoder;
 
+import java.nio.ByteBuffer;
+
 import static org.abstractj.kalium.NaCl.Sodium.PUBLICKEY_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.SIGNATURE_BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
 import static org.abstractj.kalium.crypto.Util.checkLength;
+import static org.abstractj.kalium.crypto.Util.checkRemaining;
 import static org.abstractj.kalium.crypto.Util.isValid;
-import static org.abstractj.kalium.crypto.Util.merge;
-import static org.abstractj.kalium.crypto.Util.zeros;
+import static org.abstractj.kalium.crypto.Util.pointer;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 
 public class VerifyKey {
@@ -43,11 +44,50 @@ public class VerifyKey {
 
     public boolean verify(byte[] message, byte[] signature) {
         checkLength(signature, SIGNATURE_BYTES);
-        byte[] sigAndMsg = merge(signature, message);
-        byte[] buffer = zeros(sigAndMsg.length);
-        LongLongByReference bufferLen = new LongLongByReference(0);
+        return isValid(check(message, signature) ? 0 : -1, "signature was forged or corrupted");
+    }
+
+    /**
+     * Returns whether the signature is valid without throwing on forged or
+     * truncated signatures, for callers verifying many messages at once.
+     */
+    boolean check(byte[] message, byte[] signature) {
+        return signature.length == SIGNATURE_BYTES
+                && sodium().crypto_sign_ed25519_verify_detached(signature, message, message.length, key) == 0;
+    }
+
+    /**
+     * Verifies the signature stored in {@code signature} at {@code sigOff}
+     * over {@code len} bytes of {@code message} starting at {@code off}.
+     */
+    public boolean verify(byte[] message, int off, int len, byte[] signature, int sigOff) {
+        ByteBuffer sig = ByteBuffer.wrap(signature, sigOff, SIGNATURE_BYTES);
+        return isValid(sodium().crypto_sign_ed25519_verify_detached(sig, ByteBuffer.wrap(message, off, len), len, key), "signature was forged or corrupted");
+    }
+
+    /**
+     * Verifies the signature in the next {@code SIGNATURE_BYTES} bytes of
+     * {@code signature} over the remaining bytes of {@code message}. Buffer
+     * positions are left untouched.
+     */
+    public boolean verify(ByteBuffer message, ByteBuffer signature) {
+        checkRemaining(signature, SIGNATURE_BYTES);
+        return isValid(verifyDetached(signature, message, message.remaining()), "signature was forged or corrupted");
+    }
 
-        return isValid(sodium().crypto_sign_ed25519_open(buffer, bufferLen, sigAndMsg, sigAndMsg.length, key), "signature was forged or corrupted");
+    /**
+     * JNR passes heap buffers from their position but direct buffers from
+     * their start, so direct buffers go through {@code Util.pointer()}.
+     */
+    private int verifyDetached(ByteBuffer signature, ByteBuffer message, int length) {
+        if (signature.isDirect()) {
+            return message.isDirect()
+                    ? sodium().crypto_sign_ed25519_verify_detached(pointer(signature), pointer(message), length, key)
+                    : sodium().crypto_sign_ed25519_verify_detached(pointer(signature), message, length, key);
+        }
+        return message.isDirect()
+                ? sodium().crypto_sign_ed25519_verify_detached(signature, pointer(message), length, key)
+                : sodium().crypto_sign_ed25519_verify_detached(signature, message, length, key);
     }
 
     public boolean verify(String message, String signature, Encoder encoder) {
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteOrder;
+
+/**
+ * Bulk hexadecimal conversion of ASCII data, used by {@link Hex} for large
+ * inputs.
+ * <p/>
+ * This version uses the incubating Vector API, encoding and decoding 16
+ * bytes per iteration. It is only used when the
+ * {@code jdk.incubator.vector} module is present at runtime
+ * ({@code --add-modules jdk.incubator.vector}); otherwise {@link Hex}
+ * falls back to its table-driven code.
+ */
+final class HexBulk {
+
+    private static final boolean AVAILABLE = detect();
+    // The decoder pairs digits by reinterpreting chars as ints
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private HexBulk() {
+    }
+
+    private static boolean detect() {
+        try {
+            return Vectors.BYTES.length() == 16;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    static int encode(byte[] in, int off, int len, byte[] out, int outOff) {
+        if (!AVAILABLE)
+            return 0;
+        return Vectors.encode(in, off, len, out, outOff);
+    }
+
+    static int decode(char[] in, int off, int len, byte[] out, int outOff) {
+        if (!AVAILABLE || !LITTLE_ENDIAN)
+            return 0;
+        return Vectors.decode(in, off, len, out, outOff);
+    }
+
+    /**
+     * Holds every reference to the Vector API, so that loading
+     * {@link HexBulk} never fails when the module is missing.
+     */
+    private static final class Vectors {
+
+        private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_128;
+        private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_256;
+        private static final VectorSpecies<Byte> HALF_BYTES = ByteVector.SPECIES_64;
+
+        private static int encode(byte[] in, int off, int len, byte[] out, int outOff) {
+            int done = 0;
+            for (; done <= len - 16; done += 16) {
+                ByteVector bytes = ByteVector.fromArray(BYTES, in, off + done);
+                ByteVector hi = digits(bytes.lanewise(VectorOperators.LSHR, 4).and((byte) 0x0F));
+                ByteVector lo = digits(bytes.and((byte) 0x0F));
+                // Each short holds the two digits of one byte, high digit
+                // first in little-endian order
+                ShortVector pairs = widen(hi).or(widen(lo).lanewise(VectorOperators.LSHL, 8));
+                pairs.intoByteArray(out, outOff + 2 * done, ByteOrder.LITTLE_ENDIAN);
+            }
+            return done;
+        }
+
+        private static int decode(char[] in, int off, int len, byte[] out, int outOff) {
+            int done = 0;
+            for (; done <= len - 32; done += 32) {
+                // Each int holds the two digits of one byte, high digit in
+                // the low half on little-endian platforms
+                IntVector first = ShortVector.fromCharArray(SHORTS, in, off + done).reinterpretAsInts();
+                IntVector second = ShortVector.fromCharArray(SHORTS, in, off + done + 16).reinterpretAsInts();
+                if (!isPair(first).and(isPair(second)).allTrue())
+                    break;
+                intoArray(value(first), out, outOff + done / 2);
+                intoArray(value(second), out, outOff + done / 2 + 8);
+            }
+            return done;
+        }
+
+        private static VectorMask<Integer> isPair(IntVector pairs) {
+            return isDigit(pairs.and(0xFFFF)).and(isDigit(pairs.lanewise(VectorOperators.LSHR, 16)));
+        }
+
+        private static IntVector value(IntVector pairs) {
+            IntVector hi = nibble(pairs.and(0xFFFF));
+            IntVector lo = nibble(pairs.lanewise(VectorOperators.LSHR, 16));
+            return hi.lanewise(VectorOperators.LSHL, 4).or(lo);
+        }
+
+        private static void intoArray(IntVector bytes, byte[] out, int outOff) {
+            bytes.convertShape(VectorOperators.I2B, HALF_BYTES, 0).reinterpretAsBytes().intoArray(out, outOff);
+        }
+
+        private static ByteVector digits(ByteVector nibbles) {
+            VectorMask<Byte> letters = nibbles.compare(VectorOperators.GT, (byte) 9);
+            return nibbles.add((byte) '0').add(ByteVector.broadcast(BYTES, (byte) ('a' - '0' - 10)), letters);
+        }
+
+        private static ShortVector widen(ByteVector ascii) {
+            return (ShortVector) ascii.convertShape(VectorOperators.B2S, SHORTS, 0);
+        }
+
+        private static VectorMask<Integer> isDigit(IntVector chars) {
+            IntVector digit = chars.sub('0');
+            IntVector letter = chars.or(0x20).sub('a');
+            VectorMask<Integer> digits = digit.compare(VectorOperators.GE, 0)
+                    .and(digit.compare(VectorOperators.LE, 9));
+            VectorMask<Integer> letters = letter.compare(VectorOperators.GE, 0)
+                    .and(letter.compare(VectorOperators.LE, 5));
+            return digits.or(letters);
+        }
+
+        private static IntVector nibble(IntVector chars) {
+            IntVector digit = chars.sub('0');
+            IntVector letter = chars.or(0x20).sub('a' - 10);
+            return digit.blend(letter, digit.compare(VectorOperators.GT, 9));
+        }
+    }
+}
@@ -0,0 +1,1329 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium;
+
+import jnr.ffi.Platform;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.byref.LongLongByReference;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binding of {@link NaCl.Sodium} through the Foreign Function &amp; Memory API,
+ * selected with {@link NaCl#BACKEND_PROPERTY}.
+ * <p/>
+ * Every libsodium function has a {@code static final} downcall handle,
+ * invoked with its exact parameter types, so calls compile down to a plain
+ * native call. Arguments are mapped like JNR maps them: {@code byte[]},
+ * {@code ByteBuffer}, {@code Pointer} and {@code LongLongByReference}
+ * become pointers, and {@code int} sizes are widened to {@code size_t}.
+ * <p/>
+ * Critical linkage, which hands arrays and heap buffers to libsodium in
+ * place, holds off the garbage collector for the duration of the call. It
+ * is used for functions taking fixed-size arguments only, like keys and
+ * nonces, and for calls whose input is at most {@link #CRITICAL_LIMIT}
+ * bytes. Larger inputs, password hashing and functions reading from the
+ * operating system, like {@code sodium_init} and {@code randombytes_buf},
+ * copy their arguments to native memory instead.
+ */
+final class PanamaSodium implements NaCl.Sodium {
+
+    /**
+     * Largest input, in bytes, passed in place through a critical downcall
+     */
+    static final long CRITICAL_LIMIT = 16 * 1024;
+
+    /**
+     * Library versions in libsodium sonames, newest first
+     */
+    private static final String[] SONAME_VERSIONS = { "26", "23", "18", "13" };
+
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final SymbolLookup LIBRARY = lookup(NaCl.LIBRARY_NAME, NaCl.LIBRARY_PATHS);
+
+    private static final ValueLayout INT = ValueLayout.JAVA_INT;
+    private static final ValueLayout LONG = ValueLayout.JAVA_LONG;
+    private static final ValueLayout SIZE = ValueLayout.JAVA_LONG;
+    private static final ValueLayout POINTER = ValueLayout.ADDRESS;
+
+    private static final Downcall SODIUM_INIT = plain("sodium_init", INT);
+    private static final Downcall SODIUM_VERSION_STRING = plain("sodium_version_string", POINTER);
+
+    private static final Downcall RANDOMBYTES = plain("randombytes", null, POINTER, SIZE);
+    private static final Downcall RANDOMBYTES_BUF = plain("randombytes_buf", null, POINTER, SIZE);
+    private static final Downcall RANDOMBYTES_RANDOM = plain("randombytes_random", INT);
+    private static final Downcall RANDOMBYTES_UNIFORM = plain("randombytes_uniform", INT, INT);
+    private static final Downcall RANDOMBYTES_BUF_DETERMINISTIC =
+            variable("randombytes_buf_deterministic", null, POINTER, SIZE, POINTER);
+
+    private static final Downcall CRYPTO_SECRETBOX_XSALSA20POLY1305 =
+            variable("crypto_secretbox_xsalsa20poly1305", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_SECRETBOX_XSALSA20POLY1305_OPEN =
+            variable("crypto_secretbox_xsalsa20poly1305_open", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_SECRETBOX_EASY =
+            variable("crypto_secretbox_easy", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_SECRETBOX_OPEN_EASY =
+            variable("crypto_secretbox_open_easy", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_SECRETBOX_DETACHED =
+            variable("crypto_secretbox_detached", INT, POINTER, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_SECRETBOX_OPEN_DETACHED =
+            variable("crypto_secretbox_open_detached", INT, POINTER, POINTER, POINTER, SIZE, POINTER, POINTER);
+
+    private static final Downcall CRYPTO_AUTH_HMACSHA512256 =
+            variable("crypto_auth_hmacsha512256", INT, POINTER, POINTER, SIZE, POINTER);
+    private static final Downcall CRYPTO_AUTH_HMACSHA512256_VERIFY =
+            variable("crypto_auth_hmacsha512256_verify", INT, POINTER, POINTER, SIZE, POINTER);
+
+    private static final Downcall CRYPTO_BOX_CURVE25519XSALSA20POLY1305_KEYPAIR =
+            plain("crypto_box_curve25519xsalsa20poly1305_keypair", INT, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_CURVE25519XSALSA20POLY1305_BEFORENM =
+            fixed("crypto_box_curve25519xsalsa20poly1305_beforenm", INT, POINTER, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_CURVE25519XSALSA20POLY1305 =
+            variable("crypto_box_curve25519xsalsa20poly1305", INT,
+                    POINTER, POINTER, SIZE, POINTER, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_CURVE25519XSALSA20POLY1305_AFTERNM =
+            variable("crypto_box_curve25519xsalsa20poly1305_afternm", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_CURVE25519XSALSA20POLY1305_OPEN =
+            variable("crypto_box_curve25519xsalsa20poly1305_open", INT,
+                    POINTER, POINTER, SIZE, POINTER, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_CURVE25519XSALSA20POLY1305_OPEN_AFTERNM =
+            variable("crypto_box_curve25519xsalsa20poly1305_open_afternm", INT,
+                    POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_EASY_AFTERNM =
+            variable("crypto_box_easy_afternm", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_OPEN_EASY_AFTERNM =
+            variable("crypto_box_open_easy_afternm", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_DETACHED_AFTERNM =
+            variable("crypto_box_detached_afternm", INT, POINTER, POINTER, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_BOX_OPEN_DETACHED_AFTERNM =
+            variable("crypto_box_open_detached_afternm", INT, POINTER, POINTER, POINTER, SIZE, POINTER, POINTER);
+
+    private static final Downcall CRYPTO_SIGN_ED25519_SEED_KEYPAIR =
+            fixed("crypto_sign_ed25519_seed_keypair", INT, POINTER, POINTER, POINTER);
+    private static final Downcall CRYPTO_SIGN_ED25519 =
+            variable("crypto_sign_ed25519", INT, POINTER, POINTER, POINTER, SIZE, POINTER);
+    private static final Downcall CRYPTO_SIGN_ED25519_OPEN =
+            variable("crypto_sign_ed25519_open", INT, POINTER, POINTER, POINTER, SIZE, POINTER);
+    private static final Downcall CRYPTO_SIGN_ED25519_VERIFY_DETACHED =
+            variable("crypto_sign_ed25519_verify_detached", INT, POINTER, POINTER, SIZE, POINTER);
+    private static final Downcall CRYPTO_SIGN_ED25519_DETACHED =
+            variable("crypto_sign_ed25519_detached", INT, POINTER, POINTER, POINTER, SIZE, POINTER);
+
+    private static final Downcall CRYPTO_BOX_SEAL =
+            plain("crypto_box_seal", INT, POINTER, POINTER, SIZE, POINTER);
+    private static final Downcall CRYPTO_BOX_SEAL_OPEN =
+            variable("crypto_box_seal_open", INT, POINTER, POINTER, SIZE, POINTER, POINTER);
+
+    private static final Downcall CRYPTO_GENERICHASH_BLAKE2B =
+            variable("crypto_generichash_blake2b", INT, POINTER, SIZE, POINTER, SIZE, POINTER, SIZE);
+    private static final Downcall CRYPTO_GENERICHASH_BLAKE2B_SALT_PERSONAL =
+            variable("crypto_generichash_blake2b_salt_personal", INT,
+                    POINTER, SIZE, POINTER, SIZE, POINTER, SIZE, POINTER, POINTER);
+    private static final Downcall CRYPTO_GENERICHASH_STATEBYTES = fixed("crypto_generichash_statebytes", SIZE);
+    private static final Downcall CRYPTO_GENERICHASH_INIT =
+            fixed("crypto_generichash_init", INT, POINTER, POINTER, SIZE, SIZE);
+    private static final Downcall CRYPTO_GENERICHASH_UPDATE =
+            variable("crypto_generichash_update", INT, POINTER, POINTER, SIZE);
+    private static final Downcall CRYPTO_GENERICHASH_FINAL =
+            fixed("crypto_generichash_final", INT, POINTER, POINTER, SIZE);
+
+    private static final Downcall CRYPTO_PWHASH_SCRYPTSALSA208SHA256 =
+            plain("crypto_pwhash_scryptsalsa208sha256", INT, POINTER, SIZE, POINTER, SIZE, POINTER, LONG, SIZE);
+    private static final Downcall CRYPTO_PWHASH_SCRYPTSALSA208SHA256_STR =
+            plain("crypto_pwhash_scryptsalsa208sha256_str", INT, POINTER, POINTER, LONG, LONG, SIZE);
+    private static final Downcall CRYPTO_PWHASH_SCRYPTSALSA208SHA256_STR_VERIFY =
+            plain("crypto_pwhash_scryptsalsa208sha256_str_verify", INT, POINTER, POINTER, LONG);
+    private static final Downcall CRYPTO_PWHASH =
+            plain("crypto_pwhash", INT, POINTER, LONG, POINTER, LONG, POINTER, LONG, SIZE, INT);
+    private static final Downcall CRYPTO_PWHASH_STR =
+            plain("crypto_pwhash_str", INT, POINTER, POINTER, LONG, LONG, SIZE);
+    private static final Downcall CRYPTO_PWHASH_STR_VERIFY =
+            plain("crypto_pwhash_str_verify", INT, POINTER, POINTER, LONG);
+    private static final Downcall CRYPTO_PWHASH_STR_NEEDS_REHASH =
+            plain("crypto_pwhash_str_needs_rehash", INT, POINTER, LONG, SIZE);
+
+    private static final Downcall CRYPTO_HASH_SHA256 = variable("crypto_hash_sha256", INT, POINTER, POINTER, LONG);
+    private static final Downcall CRYPTO_HASH_SHA256_STATEBYTES = fixed("crypto_hash_sha256_statebytes", SIZE);
+    private static final Downcall CRYPTO_HASH_SHA256_INIT = fixed("crypto_hash_sha256_init", INT, POINTER);
+    private static final Downcall CRYPTO_HASH_SHA256_UPDATE =
+            variable("crypto_hash_sha256_update", INT, POINTER, POINTER, LONG);
+    private static final Downcall CRYPTO_HASH_SHA256_FINAL = fixed("crypto_hash_sha256_final", INT, POINTER, POINTER);
+    private static final Downcall CRYPTO_HASH_SHA512 = variable("crypto_hash_sha512", INT, POINTER, POINTER, LONG);
+    private static final Downcall CRYPTO_HASH_SHA512_STATEBYTES = fixed("crypto_hash_sha512_statebytes", SIZE);
+    private static final Downcall CRYPTO_HASH_SHA512_INIT = fixed("crypto_hash_sha512_init", INT, POINTER);
+    private static final Downcall CRYPTO_HASH_SHA512_UPDATE =
+            variable("crypto_hash_sha512_update", INT, POINTER, POINTER, LONG);
+    private static final Downcall CRYPTO_HASH_SHA512_FINAL = fixed("crypto_hash_sha512_final", INT, POINTER, POINTER);
+
+    private static final Downcall CRYPTO_SCALARMULT_CURVE25519 =
+            fixed("crypto_scalarmult_curve25519", INT, POINTER, POINTER, POINTER);
+    private static final Downcall CRYPTO_STREAM_CHACHA20_IETF_XOR_IC =
+            variable("crypto_stream_chacha20_ietf_xor_ic", INT, POINTER, POINTER, LONG, POINTER, INT, POINTER);
+
+    private PanamaSodium() {
+    }
+
+    static boolean isAvailable() {
+        return true;
+    }
+
+    static NaCl.Sodium load() {
+        return new PanamaSodium();
+    }
+
+    private static SymbolLookup lookup(String libraryName, String[] searchPaths) {
+        List<String> candidates = new ArrayList<>();
+        // Also finds versioned files like libsodium.so.23 in the search paths, as JNR does
+        candidates.add(Platform.getNativePlatform().locateLibrary(libraryName, Arrays.asList(searchPaths)));
+        String fileName = System.mapLibraryName(libraryName);
+        candidates.add(fileName);
+        if (fileName.endsWith(".so")) {
+            // Systems without the development package lack the unversioned link
+            for (String version : SONAME_VERSIONS) {
+                candidates.add(fileName + "." + version);
+            }
+        }
+        for (String candidate : candidates) {
+            try {
+                return SymbolLookup.libraryLookup(candidate, Arena.global());
+            } catch (IllegalArgumentException e) {
+                // Try the next candidate
+            }
+        }
+        throw new UnsatisfiedLinkError("Could not load library " + fileName);
+    }
+
+    /**
+     * Downcall handles of one function: {@code critical} takes heap memory
+     * in place, {@code plain} only native memory. Record fields are trusted
+     * as constants, so the handles fold like {@code static final} ones.
+     */
+    private record Downcall(MethodHandle critical, MethodHandle plain) {
+
+        MethodHandle handle(Call call) {
+            return call.isCritical() ? critical : plain;
+        }
+    }
+
+    /**
+     * Links a function whose arguments can be large, called in place or
+     * with copies depending on their size.
+     */
+    private static Downcall variable(String name, MemoryLayout result, MemoryLayout... arguments) {
+        FunctionDescriptor descriptor = descriptor(result, arguments);
+        return new Downcall(link(name, descriptor, Linker.Option.critical(true)), link(name, descriptor));
+    }
+
+    /**
+     * Links a short function taking fixed-size arguments, always called in
+     * place.
+     */
+    private static Downcall fixed(String name, MemoryLayout result, MemoryLayout... arguments) {
+        MethodHandle handle = link(name, descriptor(result, arguments), Linker.Option.critical(true));
+        return new Downcall(handle, handle);
+    }
+
+    /**
+     * Links a function that can run for long or wait on the operating
+     * system, always called with copies.
+     */
+    private static Downcall plain(String name, MemoryLayout result, MemoryLayout... arguments) {
+        MethodHandle handle = link(name, descriptor(result, arguments));
+        return new Downcall(handle, handle);
+    }
+
+    private static FunctionDescriptor descriptor(MemoryLayout result, MemoryLayout... arguments) {
+        return result == null ? FunctionDescriptor.ofVoid(arguments) : FunctionDescriptor.of(result, arguments);
+    }
+
+    // Functions missing from older libraries fail when called, like with JNR
+    private static MethodHandle link(String name, FunctionDescriptor descriptor, Linker.Option... options) {
+        return LIBRARY.find(name)
+                .map(symbol -> LINKER.downcallHandle(symbol, descriptor, options))
+                .orElseGet(() -> missing(name, descriptor.toMethodType()));
+    }
+
+    private static MethodHandle missing(String name, MethodType type) {
+        MethodHandle thrower = MethodHandles.throwException(type.returnType(), UnsatisfiedLinkError.class);
+        thrower = MethodHandles.insertArguments(thrower, 0, new UnsatisfiedLinkError("Symbol not found: " + name));
+        return MethodHandles.dropArguments(thrower, 0, type.parameterList());
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new RuntimeException(e);
+    }
+
+    private static MemorySegment address(Pointer pointer) {
+        if (pointer == null) {
+            return MemorySegment.NULL;
+        }
+        if (!pointer.isDirect()) {
+            throw new IllegalArgumentException("Direct pointer required");
+        }
+        return MemorySegment.ofAddress(pointer.address());
+    }
+
+    // LongLongByReference has no setter; it reads its value from memory
+    private static void setValue(LongLongByReference reference, long value) {
+        ByteBuffer memory = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder()).putLong(0, value);
+        reference.fromNative(Runtime.getSystemRuntime(), Pointer.wrap(Runtime.getSystemRuntime(), memory), 0);
+    }
+
+    /**
+     * Arguments of one call. The shared critical instance passes Java memory
+     * in place; a copying instance passes copies in native memory and writes
+     * outputs back when closed.
+     */
+    private static class Call implements AutoCloseable {
+
+        private static final Call CRITICAL = new Call();
+
+        static Call critical() {
+            return CRITICAL;
+        }
+
+        static Call copying() {
+            return new Copying();
+        }
+
+        static Call forSize(long size) {
+            return size <= CRITICAL_LIMIT ? CRITICAL : new Copying();
+        }
+
+        boolean isCritical() {
+            return true;
+        }
+
+        MemorySegment in(byte[] array) {
+            return segment(array);
+        }
+
+        MemorySegment in(ByteBuffer buffer) {
+            return segment(buffer);
+        }
+
+        MemorySegment out(byte[] array) {
+            return segment(array);
+        }
+
+        MemorySegment out(ByteBuffer buffer) {
+            return segment(buffer);
+        }
+
+        MemorySegment out(long[] array) {
+            return array == null ? MemorySegment.NULL : MemorySegment.ofArray(array);
+        }
+
+        static MemorySegment segment(byte[] array) {
+            return array == null ? MemorySegment.NULL : MemorySegment.ofArray(array);
+        }
+
+        static MemorySegment segment(ByteBuffer buffer) {
+            return buffer == null ? MemorySegment.NULL : MemorySegment.ofBuffer(buffer);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class Copying extends Call {
+
+        private Arena arena;
+        private final List<MemorySegment> targets = new ArrayList<>(2);
+        private final List<MemorySegment> copies = new ArrayList<>(2);
+
+        @Override
+        boolean isCritical() {
+            return false;
+        }
+
+        @Override
+        MemorySegment in(byte[] array) {
+            return copy(super.in(array));
+        }
+
+        @Override
+        MemorySegment in(ByteBuffer buffer) {
+            return copy(super.in(buffer));
+        }
+
+        @Override
+        MemorySegment out(byte[] array) {
+            return output(super.out(array));
+        }
+
+        @Override
+        MemorySegment out(ByteBuffer buffer) {
+            return output(super.out(buffer));
+        }
+
+        @Override
+        MemorySegment out(long[] array) {
+            return output(super.out(array));
+        }
+
+        private MemorySegment copy(MemorySegment segment) {
+            if (segment.isNative()) {
+                return segment;
+            }
+            return allocate(segment.byteSize()).copyFrom(segment);
+        }
+
+        private MemorySegment output(MemorySegment segment) {
+            if (segment.isNative()) {
+                return segment;
+            }
+            MemorySegment copy = allocate(segment.byteSize());
+            targets.add(segment);
+            copies.add(copy);
+            return copy;
+        }
+
+        private MemorySegment allocate(long size) {
+            if (arena == null) {
+                arena = Arena.ofConfined();
+            }
+            return arena.allocate(size);
+        }
+
+        @Override
+        public void close() {
+            if (arena == null) {
+                return;
+            }
+            try {
+                for (int i = 0; i < targets.size(); i++) {
+                    targets.get(i).copyFrom(copies.get(i));
+                }
+            } finally {
+                arena.close();
+            }
+        }
+    }
+
+    @Override
+    public int sodium_init() {
+        try {
+            return (int) SODIUM_INIT.plain().invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public String sodium_version_string() {
+        try {
+            MemorySegment version = (MemorySegment) SODIUM_VERSION_STRING.plain().invokeExact();
+            return version.equals(MemorySegment.NULL) ? null : version.reinterpret(Long.MAX_VALUE).getString(0);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void randombytes(byte[] buffer, int size) {
+        try (Call call = Call.copying()) {
+            RANDOMBYTES.plain().invokeExact(call.out(buffer), (long) size);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void randombytes_buf(byte[] buffer, int size) {
+        try (Call call = Call.copying()) {
+            RANDOMBYTES_BUF.plain().invokeExact(call.out(buffer), (long) size);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void randombytes_buf(ByteBuffer buffer, int size) {
+        try (Call call = Call.copying()) {
+            RANDOMBYTES_BUF.plain().invokeExact(call.out(buffer), (long) size);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void randombytes_buf(Pointer buffer, int size) {
+        try {
+            RANDOMBYTES_BUF.plain().invokeExact(address(buffer), (long) size);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int randombytes_random() {
+        try {
+            return (int) RANDOMBYTES_RANDOM.plain().invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int randombytes_uniform(int upperBound) {
+        try {
+            return (int) RANDOMBYTES_UNIFORM.plain().invokeExact(upperBound);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void randombytes_buf_deterministic(byte[] buffer, int size, byte[] seed) {
+        try (Call call = Call.forSize(size)) {
+            RANDOMBYTES_BUF_DETERMINISTIC.handle(call).invokeExact(call.out(buffer), (long) size, call.in(seed));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_xsalsa20poly1305(byte[] ct, byte[] msg, int length, byte[] nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_XSALSA20POLY1305.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_xsalsa20poly1305_open(byte[] message, byte[] ct, int length, byte[] nonce,
+                                                      byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_XSALSA20POLY1305_OPEN.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_easy(byte[] ct, byte[] msg, int length, byte[] nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_EASY.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_open_easy(byte[] message, byte[] ct, int length, byte[] nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_OPEN_EASY.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_detached(byte[] ct, byte[] mac, byte[] msg, int length, byte[] nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_DETACHED.handle(call).invokeExact(
+                    call.out(ct), call.out(mac), call.in(msg), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_open_detached(byte[] message, byte[] ct, byte[] mac, int length, byte[] nonce,
+                                              byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_OPEN_DETACHED.handle(call).invokeExact(
+                    call.out(message), call.in(ct), call.in(mac), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_easy(ByteBuffer ct, ByteBuffer msg, int length, byte[] nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_EASY.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_open_easy(ByteBuffer message, ByteBuffer ct, int length, byte[] nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_OPEN_EASY.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_easy(Pointer ct, Pointer msg, int length, Pointer nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_EASY.handle(call).invokeExact(
+                    address(ct), address(msg), (long) length, address(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_secretbox_open_easy(Pointer message, Pointer ct, int length, Pointer nonce, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SECRETBOX_OPEN_EASY.handle(call).invokeExact(
+                    address(message), address(ct), (long) length, address(nonce), call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_auth_hmacsha512256(byte[] mac, byte[] message, int sizeof, byte[] key) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_AUTH_HMACSHA512256.handle(call).invokeExact(
+                    call.out(mac), call.in(message), (long) sizeof, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_auth_hmacsha512256_verify(byte[] mac, byte[] message, int sizeof, byte[] key) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_AUTH_HMACSHA512256_VERIFY.handle(call).invokeExact(
+                    call.in(mac), call.in(message), (long) sizeof, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_auth_hmacsha512256(ByteBuffer mac, ByteBuffer message, int sizeof, byte[] key) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_AUTH_HMACSHA512256.handle(call).invokeExact(
+                    call.out(mac), call.in(message), (long) sizeof, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_auth_hmacsha512256_verify(ByteBuffer mac, ByteBuffer message, int sizeof, byte[] key) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_AUTH_HMACSHA512256_VERIFY.handle(call).invokeExact(
+                    call.in(mac), call.in(message), (long) sizeof, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_curve25519xsalsa20poly1305_keypair(byte[] publicKey, byte[] secretKey) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_BOX_CURVE25519XSALSA20POLY1305_KEYPAIR.plain().invokeExact(
+                    call.out(publicKey), call.out(secretKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_curve25519xsalsa20poly1305_beforenm(byte[] sharedkey, byte[] publicKey,
+                                                              byte[] privateKey) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_BOX_CURVE25519XSALSA20POLY1305_BEFORENM.critical().invokeExact(
+                    call.out(sharedkey), call.in(publicKey), call.in(privateKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_curve25519xsalsa20poly1305(byte[] ct, byte[] msg, int length, byte[] nonce,
+                                                     byte[] publicKey, byte[] privateKey) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_CURVE25519XSALSA20POLY1305.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(publicKey),
+                    call.in(privateKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_curve25519xsalsa20poly1305_afternm(byte[] ct, byte[] msg, int length, byte[] nonce,
+                                                             byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_CURVE25519XSALSA20POLY1305_AFTERNM.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_curve25519xsalsa20poly1305_open(byte[] message, byte[] ct, int length, byte[] nonce,
+                                                          byte[] publicKey, byte[] privateKey) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_CURVE25519XSALSA20POLY1305_OPEN.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(publicKey),
+                    call.in(privateKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_curve25519xsalsa20poly1305_open_afternm(byte[] message, byte[] ct, int length,
+                                                                  byte[] nonce, byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_CURVE25519XSALSA20POLY1305_OPEN_AFTERNM.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_easy_afternm(byte[] ct, byte[] msg, int length, byte[] nonce, byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_EASY_AFTERNM.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_open_easy_afternm(byte[] message, byte[] ct, int length, byte[] nonce, byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_OPEN_EASY_AFTERNM.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_detached_afternm(byte[] ct, byte[] mac, byte[] msg, int length, byte[] nonce,
+                                           byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_DETACHED_AFTERNM.handle(call).invokeExact(
+                    call.out(ct), call.out(mac), call.in(msg), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_open_detached_afternm(byte[] message, byte[] ct, byte[] mac, int length, byte[] nonce,
+                                                byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_OPEN_DETACHED_AFTERNM.handle(call).invokeExact(
+                    call.out(message), call.in(ct), call.in(mac), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_easy_afternm(ByteBuffer ct, ByteBuffer msg, int length, byte[] nonce, byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_EASY_AFTERNM.handle(call).invokeExact(
+                    call.out(ct), call.in(msg), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_open_easy_afternm(ByteBuffer message, ByteBuffer ct, int length, byte[] nonce,
+                                            byte[] shared) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_OPEN_EASY_AFTERNM.handle(call).invokeExact(
+                    call.out(message), call.in(ct), (long) length, call.in(nonce), call.in(shared));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519_seed_keypair(byte[] publicKey, byte[] secretKey, byte[] seed) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_SIGN_ED25519_SEED_KEYPAIR.critical().invokeExact(
+                    call.out(publicKey), call.out(secretKey), call.in(seed));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519(byte[] buffer, LongLongByReference bufferLen, byte[] message, int length,
+                                   byte[] secretKey) {
+        long[] written = bufferLen == null ? null : new long[1];
+        int result;
+        try (Call call = Call.forSize(length)) {
+            result = (int) CRYPTO_SIGN_ED25519.handle(call).invokeExact(
+                    call.out(buffer), call.out(written), call.in(message), (long) length, call.in(secretKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        if (bufferLen != null) {
+            setValue(bufferLen, written[0]);
+        }
+        return result;
+    }
+
+    @Override
+    public int crypto_sign_ed25519_open(byte[] buffer, LongLongByReference bufferLen, byte[] sigAndMsg, int length,
+                                        byte[] key) {
+        long[] written = bufferLen == null ? null : new long[1];
+        int result;
+        try (Call call = Call.forSize(length)) {
+            result = (int) CRYPTO_SIGN_ED25519_OPEN.handle(call).invokeExact(
+                    call.out(buffer), call.out(written), call.in(sigAndMsg), (long) length, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        if (bufferLen != null) {
+            setValue(bufferLen, written[0]);
+        }
+        return result;
+    }
+
+    @Override
+    public int crypto_sign_ed25519_verify_detached(byte[] signature, byte[] message, int length, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SIGN_ED25519_VERIFY_DETACHED.handle(call).invokeExact(
+                    call.in(signature), call.in(message), (long) length, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519_verify_detached(ByteBuffer signature, ByteBuffer message, int length,
+                                                   byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SIGN_ED25519_VERIFY_DETACHED.handle(call).invokeExact(
+                    call.in(signature), call.in(message), (long) length, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519_verify_detached(Pointer signature, Pointer message, int length, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SIGN_ED25519_VERIFY_DETACHED.handle(call).invokeExact(
+                    address(signature), address(message), (long) length, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519_verify_detached(Pointer signature, ByteBuffer message, int length,
+                                                   byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SIGN_ED25519_VERIFY_DETACHED.handle(call).invokeExact(
+                    address(signature), call.in(message), (long) length, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519_verify_detached(ByteBuffer signature, Pointer message, int length,
+                                                   byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_SIGN_ED25519_VERIFY_DETACHED.handle(call).invokeExact(
+                    call.in(signature), address(message), (long) length, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_sign_ed25519_detached(byte[] signature, LongLongByReference signatureLen, byte[] message,
+                                            int length, byte[] secretKey) {
+        long[] written = signatureLen == null ? null : new long[1];
+        int result;
+        try (Call call = Call.forSize(length)) {
+            result = (int) CRYPTO_SIGN_ED25519_DETACHED.handle(call).invokeExact(
+                    call.out(signature), call.out(written), call.in(message), (long) length, call.in(secretKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        if (signatureLen != null) {
+            setValue(signatureLen, written[0]);
+        }
+        return result;
+    }
+
+    @Override
+    public int crypto_sign_ed25519_detached(ByteBuffer signature, LongLongByReference signatureLen,
+                                            ByteBuffer message, int length, byte[] secretKey) {
+        long[] written = signatureLen == null ? null : new long[1];
+        int result;
+        try (Call call = Call.forSize(length)) {
+            result = (int) CRYPTO_SIGN_ED25519_DETACHED.handle(call).invokeExact(
+                    call.out(signature), call.out(written), call.in(message), (long) length, call.in(secretKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        if (signatureLen != null) {
+            setValue(signatureLen, written[0]);
+        }
+        return result;
+    }
+
+    // Sealing generates an ephemeral key pair, so it reads from the system
+    // random source
+    @Override
+    public int crypto_box_seal(byte[] ct, byte[] message, int length, byte[] publicKey) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_BOX_SEAL.plain().invokeExact(
+                    call.out(ct), call.in(message), (long) length, call.in(publicKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_seal_open(byte[] message, byte[] c, int length, byte[] publicKey, byte[] privateKey) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_SEAL_OPEN.handle(call).invokeExact(
+                    call.out(message), call.in(c), (long) length, call.in(publicKey), call.in(privateKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_seal(ByteBuffer ct, ByteBuffer message, int length, byte[] publicKey) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_BOX_SEAL.plain().invokeExact(
+                    call.out(ct), call.in(message), (long) length, call.in(publicKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_box_seal_open(ByteBuffer message, ByteBuffer c, int length, byte[] publicKey,
+                                    byte[] privateKey) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_BOX_SEAL_OPEN.handle(call).invokeExact(
+                    call.out(message), call.in(c), (long) length, call.in(publicKey), call.in(privateKey));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_blake2b(byte[] buffer, int outLen, byte[] message, int messageLen, byte[] key,
+                                          int keyLen) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_BLAKE2B.handle(call).invokeExact(
+                    call.out(buffer), (long) outLen, call.in(message), (long) messageLen, call.in(key), (long) keyLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_blake2b(ByteBuffer buffer, int outLen, ByteBuffer message, int messageLen,
+                                          byte[] key, int keyLen) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_BLAKE2B.handle(call).invokeExact(
+                    call.out(buffer), (long) outLen, call.in(message), (long) messageLen, call.in(key), (long) keyLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_blake2b_salt_personal(byte[] buffer, int outLen, byte[] message, int messageLen,
+                                                        byte[] key, int keyLen, byte[] salt, byte[] personal) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_BLAKE2B_SALT_PERSONAL.handle(call).invokeExact(
+                    call.out(buffer), (long) outLen, call.in(message), (long) messageLen, call.in(key), (long) keyLen,
+                    call.in(salt), call.in(personal));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_blake2b_salt_personal(byte[] buffer, int outLen, ByteBuffer message,
+                                                        int messageLen, byte[] key, int keyLen, byte[] salt,
+                                                        byte[] personal) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_BLAKE2B_SALT_PERSONAL.handle(call).invokeExact(
+                    call.out(buffer), (long) outLen, call.in(message), (long) messageLen, call.in(key), (long) keyLen,
+                    call.in(salt), call.in(personal));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_blake2b_salt_personal(byte[] buffer, int outLen, Pointer message, int messageLen,
+                                                        byte[] key, int keyLen, byte[] salt, byte[] personal) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_BLAKE2B_SALT_PERSONAL.handle(call).invokeExact(
+                    call.out(buffer), (long) outLen, address(message), (long) messageLen, call.in(key), (long) keyLen,
+                    call.in(salt), call.in(personal));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long crypto_generichash_statebytes() {
+        try {
+            return (long) CRYPTO_GENERICHASH_STATEBYTES.critical().invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_init(Pointer state, byte[] key, int keyLen, int outLen) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_GENERICHASH_INIT.critical().invokeExact(
+                    address(state), call.in(key), (long) keyLen, (long) outLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_update(Pointer state, byte[] message, int messageLen) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_UPDATE.handle(call).invokeExact(
+                    address(state), call.in(message), (long) messageLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_update(Pointer state, ByteBuffer message, int messageLen) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_UPDATE.handle(call).invokeExact(
+                    address(state), call.in(message), (long) messageLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_update(Pointer state, Pointer message, int messageLen) {
+        try (Call call = Call.forSize(messageLen)) {
+            return (int) CRYPTO_GENERICHASH_UPDATE.handle(call).invokeExact(
+                    address(state), address(message), (long) messageLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_generichash_final(Pointer state, ByteBuffer buffer, int outLen) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_GENERICHASH_FINAL.critical().invokeExact(address(state), call.out(buffer), (long) outLen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash_scryptsalsa208sha256(byte[] buffer, int outlen, byte[] passwd, int passwdlen,
+                                                  byte[] salt, long opslimit, long memlimit) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH_SCRYPTSALSA208SHA256.plain().invokeExact(
+                    call.out(buffer), (long) outlen, call.in(passwd), (long) passwdlen, call.in(salt), opslimit,
+                    memlimit);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash_scryptsalsa208sha256_str(byte[] buffer, byte[] passwd, int passwdlen, long opslimit,
+                                                      long memlimit) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH_SCRYPTSALSA208SHA256_STR.plain().invokeExact(
+                    call.out(buffer), call.in(passwd), (long) passwdlen, opslimit, memlimit);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash_scryptsalsa208sha256_str_verify(byte[] buffer, byte[] passwd, int passwdlen) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH_SCRYPTSALSA208SHA256_STR_VERIFY.plain().invokeExact(
+                    call.in(buffer), call.in(passwd), (long) passwdlen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash(byte[] buffer, int outlen, byte[] passwd, int passwdlen, byte[] salt, long opslimit,
+                             long memlimit, int alg) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH.plain().invokeExact(
+                    call.out(buffer), (long) outlen, call.in(passwd), (long) passwdlen, call.in(salt), opslimit,
+                    memlimit, alg);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash_str(byte[] buffer, byte[] passwd, int passwdlen, long opslimit, long memlimit) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH_STR.plain().invokeExact(
+                    call.out(buffer), call.in(passwd), (long) passwdlen, opslimit, memlimit);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash_str_verify(byte[] buffer, byte[] passwd, int passwdlen) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH_STR_VERIFY.plain().invokeExact(
+                    call.in(buffer), call.in(passwd), (long) passwdlen);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_pwhash_str_needs_rehash(byte[] buffer, long opslimit, long memlimit) {
+        try (Call call = Call.copying()) {
+            return (int) CRYPTO_PWHASH_STR_NEEDS_REHASH.plain().invokeExact(call.in(buffer), opslimit, memlimit);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256(byte[] buffer, byte[] message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA256.handle(call).invokeExact(call.out(buffer), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256(ByteBuffer buffer, ByteBuffer message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA256.handle(call).invokeExact(call.out(buffer), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long crypto_hash_sha256_statebytes() {
+        try {
+            return (long) CRYPTO_HASH_SHA256_STATEBYTES.critical().invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256_init(Pointer state) {
+        try {
+            return (int) CRYPTO_HASH_SHA256_INIT.critical().invokeExact(address(state));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256_update(Pointer state, byte[] message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA256_UPDATE.handle(call).invokeExact(
+                    address(state), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256_update(Pointer state, ByteBuffer message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA256_UPDATE.handle(call).invokeExact(
+                    address(state), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256_update(Pointer state, Pointer message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA256_UPDATE.handle(call).invokeExact(
+                    address(state), address(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha256_final(Pointer state, ByteBuffer buffer) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_HASH_SHA256_FINAL.critical().invokeExact(address(state), call.out(buffer));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512(byte[] buffer, byte[] message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA512.handle(call).invokeExact(call.out(buffer), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512(ByteBuffer buffer, ByteBuffer message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA512.handle(call).invokeExact(call.out(buffer), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long crypto_hash_sha512_statebytes() {
+        try {
+            return (long) CRYPTO_HASH_SHA512_STATEBYTES.critical().invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512_init(Pointer state) {
+        try {
+            return (int) CRYPTO_HASH_SHA512_INIT.critical().invokeExact(address(state));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512_update(Pointer state, byte[] message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA512_UPDATE.handle(call).invokeExact(
+                    address(state), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512_update(Pointer state, ByteBuffer message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA512_UPDATE.handle(call).invokeExact(
+                    address(state), call.in(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512_update(Pointer state, Pointer message, int sizeof) {
+        try (Call call = Call.forSize(sizeof)) {
+            return (int) CRYPTO_HASH_SHA512_UPDATE.handle(call).invokeExact(
+                    address(state), address(message), (long) sizeof);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_hash_sha512_final(Pointer state, ByteBuffer buffer) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_HASH_SHA512_FINAL.critical().invokeExact(address(state), call.out(buffer));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_scalarmult_curve25519(byte[] result, byte[] intValue, byte[] point) {
+        try (Call call = Call.critical()) {
+            return (int) CRYPTO_SCALARMULT_CURVE25519.critical().invokeExact(
+                    call.out(result), call.in(intValue), call.in(point));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int crypto_stream_chacha20_ietf_xor_ic(byte[] ciphertext, byte[] message, int length, byte[] nonce,
+                                                  int counter, byte[] key) {
+        try (Call call = Call.forSize(length)) {
+            return (int) CRYPTO_STREAM_CHACHA20_IETF_XOR_IC.handle(call).invokeExact(
+                    call.out(ciphertext), call.in(message), (long) length, call.in(nonce), counter, call.in(key));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
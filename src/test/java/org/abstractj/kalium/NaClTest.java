@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NaClTest {
+
+    @Test
+    public void testSodiumIsSingleton() throws Exception {
+        assertSame(NaCl.sodium(), NaCl.sodium());
+    }
+
+    @Test
+    public void testInitializedOnFirstUse() throws Exception {
+        assertEquals(1, NaCl.init());
+    }
+
+    /**
+     * The panama-tests execution of the jdk22 profile sets
+     * {@code kalium.test.panama} to make sure the suite really runs on the
+     * Foreign Function & Memory binding.
+     */
+    @Test
+    public void testSelectedBackend() throws Exception {
+        if (Boolean.getBoolean("kalium.test.panama")) {
+            assertTrue(PanamaSodium.class.isInstance(NaCl.sodium()));
+        }
+    }
+
+    @Test
+    public void testVersionComparison() throws Exception {
+        assertTrue(NaCl.isAtLeast(NaCl.parseVersion("1.0.15"), 1, 0, 15));
+        assertTrue(NaCl.isAtLeast(NaCl.parseVersion("1.0.18"), 1, 0, 15));
+        assertTrue(NaCl.isAtLeast(NaCl.parseVersion("1.1.0"), 1, 0, 15));
+        assertFalse(NaCl.isAtLeast(NaCl.parseVersion("1.0.12"), 1, 0, 15));
+        assertFalse(NaCl.isAtLeast(NaCl.parseVersion("0.7.1"), 1, 0, 3));
+    }
+
+    @Test
+    public void testRequireInstalledVersion() throws Exception {
+        NaCl.requireVersion("Anything", 1, 0, 3);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRequireNewerVersion() throws Exception {
+        NaCl.requireVersion("Anything", 99, 0, 0);
+    }
+}
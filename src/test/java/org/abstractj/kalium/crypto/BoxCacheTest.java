@@ -0,0 +1,138 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.abstractj.kalium.keys.KeyPair;
+import org.abstractj.kalium.keys.PrivateKey;
+import org.abstractj.kalium.keys.PublicKey;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.abstractj.kalium.encoders.Encoder.HEX;
+import static org.abstractj.kalium.fixture.TestVectors.ALICE_PUBLIC_KEY;
+import static org.abstractj.kalium.fixture.TestVectors.BOB_PRIVATE_KEY;
+import static org.abstractj.kalium.fixture.TestVectors.BOX_CIPHERTEXT;
+import static org.abstractj.kalium.fixture.TestVectors.BOX_MESSAGE;
+import static org.abstractj.kalium.fixture.TestVectors.BOX_NONCE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoxCacheTest {
+
+    private static final PrivateKey BOB = new PrivateKey(BOB_PRIVATE_KEY);
+
+    @Test
+    public void testCachedBoxEncrypts() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 10);
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        Box box = cache.get(new PublicKey(ALICE_PUBLIC_KEY));
+        assertTrue(Arrays.equals(ciphertext, box.encrypt(nonce, message)));
+        box = cache.get(new PublicKey(ALICE_PUBLIC_KEY));
+        assertTrue(Arrays.equals(ciphertext, box.encrypt(nonce, message)));
+    }
+
+    @Test
+    public void testHitAndMissCounters() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 10);
+        cache.get(HEX.decode(ALICE_PUBLIC_KEY));
+        cache.get(HEX.decode(ALICE_PUBLIC_KEY));
+        cache.get(HEX.decode(ALICE_PUBLIC_KEY));
+        cache.get(new KeyPair().getPublicKey());
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 1);
+        PublicKey alice = new PublicKey(ALICE_PUBLIC_KEY);
+        cache.get(alice);
+        cache.get(new KeyPair().getPublicKey());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.evictionCount());
+        cache.get(alice);
+        assertEquals(3, cache.missCount());
+    }
+
+    @Test
+    public void testEvictionDoesNotAffectBoxesInUse() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 1);
+        Box box = cache.get(new PublicKey(ALICE_PUBLIC_KEY));
+        cache.invalidateAll();
+        byte[] ciphertext = box.encrypt(HEX.decode(BOX_NONCE), HEX.decode(BOX_MESSAGE));
+        assertTrue(Arrays.equals(HEX.decode(BOX_CIPHERTEXT), ciphertext));
+    }
+
+    @Test
+    public void testExpireEntries() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 10, 1, TimeUnit.MILLISECONDS);
+        PublicKey alice = new PublicKey(ALICE_PUBLIC_KEY);
+        cache.get(alice);
+        Thread.sleep(5);
+        cache.get(alice);
+        assertEquals(0, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void testSmallCacheHoldsMaximumSize() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 8);
+        for (int i = 0; i < 8; i++) {
+            cache.get(new KeyPair().getPublicKey());
+        }
+        assertEquals(8, cache.size());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void testPurgeExpiredEntriesOnInsert() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 10, 1, TimeUnit.MILLISECONDS);
+        cache.get(new PublicKey(ALICE_PUBLIC_KEY));
+        Thread.sleep(5);
+        cache.get(new KeyPair().getPublicKey());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        BoxCache cache = new BoxCache(BOB, 10);
+        PublicKey alice = new PublicKey(ALICE_PUBLIC_KEY);
+        cache.get(alice);
+        cache.invalidate(alice);
+        assertEquals(0, cache.size());
+        cache.get(alice);
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidSize() throws Exception {
+        new BoxCache(BOB, 0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidPeerKey() throws Exception {
+        new BoxCache(BOB, 10).get(new byte[10]);
+    }
+}
@@ -16,12 +16,18 @@
 
 package org.abstractj.kalium.crypto;
 
+import org.abstractj.kalium.keys.KeyPair;
 import org.abstractj.kalium.keys.PrivateKey;
 import org.abstractj.kalium.keys.PublicKey;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static org.abstractj.kalium.crypto.Util.slice;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 import static org.abstractj.kalium.fixture.TestVectors.ALICE_PRIVATE_KEY;
 import static org.abstractj.kalium.fixture.TestVectors.ALICE_PUBLIC_KEY;
@@ -30,6 +36,8 @@ import static org.abstractj.kalium.fixture.TestVectors.BOB_PUBLIC_KEY;
 import static org.abstractj.kalium.fixture.TestVectors.BOX_CIPHERTEXT;
 import static org.abstractj.kalium.fixture.TestVectors.BOX_MESSAGE;
 import static org.abstractj.kalium.fixture.TestVectors.BOX_NONCE;
+import static org.abstractj.kalium.NaCl.Sodium.MAC_BYTES;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -137,4 +145,119 @@ public class BoxTest {
         pandora.decrypt(nonce, ciphertext);
         fail("Should raise an exception");
     }
+
+    @Test
+    public void testEncryptDetached() throws Exception {
+        Box box = new Box(new PublicKey(ALICE_PUBLIC_KEY), new PrivateKey(BOB_PRIVATE_KEY));
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        byte[] mac = new byte[MAC_BYTES];
+        byte[] result = box.encryptDetached(nonce, message, mac);
+        assertTrue("failed to generate mac", Arrays.equals(mac, slice(ciphertext, 0, MAC_BYTES)));
+        assertTrue("failed to generate ciphertext",
+                Arrays.equals(result, slice(ciphertext, MAC_BYTES, ciphertext.length)));
+    }
+
+    @Test
+    public void testDecryptDetached() throws Exception {
+        Box box = new Box(new PublicKey(ALICE_PUBLIC_KEY), new PrivateKey(BOB_PRIVATE_KEY));
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] expectedMessage = HEX.decode(BOX_MESSAGE);
+        byte[] mac = new byte[MAC_BYTES];
+        byte[] ciphertext = box.encryptDetached(nonce, expectedMessage, mac);
+
+        Box pandora = new Box(new PublicKey(BOB_PUBLIC_KEY), new PrivateKey(ALICE_PRIVATE_KEY));
+        byte[] message = pandora.decryptDetached(nonce, ciphertext, mac);
+        assertTrue("failed to decrypt ciphertext", Arrays.equals(message, expectedMessage));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDecryptDetachedCorruptedMac() throws Exception {
+        Box box = new Box(new PublicKey(ALICE_PUBLIC_KEY), new PrivateKey(BOB_PRIVATE_KEY));
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] mac = new byte[MAC_BYTES];
+        byte[] ciphertext = box.encryptDetached(nonce, HEX.decode(BOX_MESSAGE), mac);
+        mac[0] ^= 1;
+
+        Box pandora = new Box(new PublicKey(BOB_PUBLIC_KEY), new PrivateKey(ALICE_PRIVATE_KEY));
+        pandora.decryptDetached(nonce, ciphertext, mac);
+        fail("Should raise an exception");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDecryptShortCipherText() throws Exception {
+        Box box = new Box(new PublicKey(ALICE_PUBLIC_KEY), new PrivateKey(BOB_PRIVATE_KEY));
+        box.decrypt(HEX.decode(BOX_NONCE), new byte[MAC_BYTES - 1]);
+        fail("Should raise an exception");
+    }
+
+    @Test
+    public void testEncryptIntoBuffer() throws Exception {
+        Box box = new Box(new PublicKey(ALICE_PUBLIC_KEY), new PrivateKey(BOB_PRIVATE_KEY));
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        byte[] in = new byte[message.length + 3];
+        System.arraycopy(message, 0, in, 3, message.length);
+        byte[] out = new byte[ciphertext.length + 5];
+
+        int written = box.encrypt(nonce, in, 3, message.length, out, 5);
+        assertEquals(ciphertext.length, written);
+        assertTrue("failed to generate ciphertext",
+                Arrays.equals(slice(out, 5, out.length), ciphertext));
+    }
+
+    @Test
+    public void testDecryptIntoBuffer() throws Exception {
+        Box pandora = new Box(new PublicKey(BOB_PUBLIC_KEY), new PrivateKey(ALICE_PRIVATE_KEY));
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] expectedMessage = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        byte[] in = new byte[ciphertext.length + 3];
+        System.arraycopy(ciphertext, 0, in, 3, ciphertext.length);
+        byte[] out = new byte[expectedMessage.length + 5];
+
+        int written = pandora.decrypt(nonce, in, 3, ciphertext.length, out, 5);
+        assertEquals(expectedMessage.length, written);
+        assertTrue("failed to decrypt ciphertext",
+                Arrays.equals(slice(out, 5, out.length), expectedMessage));
+    }
+
+    private static List<PublicKey> peers(int count) {
+        List<PublicKey> peers = new ArrayList<PublicKey>(count);
+        peers.add(new PublicKey(ALICE_PUBLIC_KEY));
+        for (int i = 1; i < count; i++) {
+            peers.add(new KeyPair().getPublicKey());
+        }
+        return peers;
+    }
+
+    @Test
+    public void testPrecomputeAll() throws Exception {
+        PrivateKey bob = new PrivateKey(BOB_PRIVATE_KEY);
+        List<PublicKey> peers = peers(300);
+        SharedKeyTable table = Box.precomputeAll(bob, peers, null);
+        assertEquals(300, table.size());
+        for (PublicKey peer : peers) {
+            assertTrue(Arrays.equals(new Box(peer, bob).getSharedKey(), table.get(peer).getSharedKey()));
+        }
+    }
+
+    @Test
+    public void testPrecomputeAllWithExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SharedKeyTable table = Box.precomputeAll(new PrivateKey(BOB_PRIVATE_KEY), peers(500), executor);
+            assertEquals(500, table.size());
+            byte[] ciphertext = table.get(new PublicKey(ALICE_PUBLIC_KEY))
+                    .encrypt(HEX.decode(BOX_NONCE), HEX.decode(BOX_MESSAGE));
+            assertTrue(Arrays.equals(HEX.decode(BOX_CIPHERTEXT), ciphertext));
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
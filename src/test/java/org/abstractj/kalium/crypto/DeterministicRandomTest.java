@@ -0,0 +1,92 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeterministicRandomTest {
+
+    private static byte[] seed(int value) {
+        byte[] seed = new byte[32];
+        seed[0] = (byte) value;
+        return seed;
+    }
+
+    @Test
+    public void testMatchesRandombytesBufDeterministic() throws Exception {
+        byte[] expected = DeterministicRandom.bytes(seed(1), 200000);
+        byte[] actual = new DeterministicRandom(seed(1)).nextBytes(200000);
+        assertTrue(Arrays.equals(expected, actual));
+    }
+
+    @Test
+    public void testReadInPieces() throws Exception {
+        byte[] expected = DeterministicRandom.bytes(seed(2), 150000);
+        DeterministicRandom random = new DeterministicRandom(seed(2));
+        byte[] actual = new byte[150000];
+        int[] pieces = {1, 63, 65536, 7, 70000};
+        int offset = 0;
+        for (int piece : pieces) {
+            random.nextBytes(actual, offset, piece);
+            offset += piece;
+        }
+        random.nextBytes(actual, offset, actual.length - offset);
+        assertTrue(Arrays.equals(expected, actual));
+        assertEquals(150000, random.position());
+    }
+
+    @Test
+    public void testSeek() throws Exception {
+        byte[] expected = DeterministicRandom.bytes(seed(3), 100000);
+        DeterministicRandom random = new DeterministicRandom(seed(3));
+        random.seek(70001);
+        byte[] tail = random.nextBytes(100000 - 70001);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(expected, 70001, 100000), tail));
+    }
+
+    @Test
+    public void testDifferentSeedsDiffer() throws Exception {
+        assertFalse(Arrays.equals(new DeterministicRandom(seed(4)).nextBytes(32),
+                new DeterministicRandom(seed(5)).nextBytes(32)));
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DeterministicRandom(seed(6)).writeTo(out, 100000);
+        assertTrue(Arrays.equals(DeterministicRandom.bytes(seed(6), 100000), out.toByteArray()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectExhaustedStream() throws Exception {
+        DeterministicRandom random = new DeterministicRandom(seed(7));
+        random.seek(DeterministicRandom.MAX_LENGTH - 1);
+        random.nextBytes(2);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidSeed() throws Exception {
+        new DeterministicRandom(new byte[16]);
+    }
+}
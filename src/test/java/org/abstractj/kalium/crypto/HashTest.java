@@ -18,9 +18,20 @@ package org.abstractj.kalium.crypto;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertTrue;
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_BYTES_MAX;
+import static org.abstractj.kalium.NaCl.Sodium.BLAKE2B_OUTBYTES;
+import static org.abstractj.kalium.NaCl.sodium;
+import static org.abstractj.kalium.NaCl.Sodium.SHA256BYTES;
+import static org.abstractj.kalium.NaCl.Sodium.SHA512BYTES;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 import static org.abstractj.kalium.fixture.TestVectors.SHA256_DIGEST;
 import static org.abstractj.kalium.fixture.TestVectors.SHA256_DIGEST_EMPTY_STRING;
@@ -152,4 +163,197 @@ public class HashTest {
                 Blake2_PERSONAL.getBytes());
         assertEquals("Hash is invalid", Blake2_DIGEST_WITH_SALT_PERSONAL, HEX.encode(result));
     }
+
+    @Test
+    public void testSha256IntoBuffer() throws Exception {
+        byte[] message = ("xx" + SHA256_MESSAGE).getBytes();
+        byte[] out = new byte[SHA256BYTES + 4];
+        int written = hash.sha256(message, 2, message.length - 2, out, 4);
+        assertEquals(SHA256BYTES, written);
+        assertEquals("Hash is invalid", SHA256_DIGEST, HEX.encode(Util.slice(out, 4, out.length)));
+    }
+
+    @Test
+    public void testSha512IntoBuffer() throws Exception {
+        byte[] message = ("xx" + SHA512_MESSAGE).getBytes();
+        byte[] out = new byte[SHA512BYTES + 4];
+        int written = hash.sha512(message, 2, message.length - 2, out, 4);
+        assertEquals(SHA512BYTES, written);
+        assertEquals("Hash is invalid", SHA512_DIGEST, HEX.encode(Util.slice(out, 4, out.length)));
+    }
+
+    @Test
+    public void testBlake2IntoBuffer() throws Exception {
+        byte[] message = ("xx" + Blake2_MESSAGE).getBytes();
+        byte[] out = new byte[BLAKE2B_OUTBYTES + 4];
+        int written = hash.blake2(message, 2, message.length - 2, out, 4);
+        assertEquals(BLAKE2B_OUTBYTES, written);
+        assertEquals("Hash is invalid", Blake2_DIGEST, HEX.encode(Util.slice(out, 4, out.length)));
+    }
+
+    @Test
+    public void testBlake2State() throws Exception {
+        byte[] message = Blake2_MESSAGE.getBytes();
+        Hash.Blake2bState state = new Hash.Blake2bState();
+        state.update(message, 0, 10).update(message, 10, message.length - 10);
+        assertEquals("Hash is invalid", Blake2_DIGEST, HEX.encode(state.digest()));
+    }
+
+    @Test
+    public void testBlake2StateIsReusable() throws Exception {
+        Hash.Blake2bState state = new Hash.Blake2bState();
+        state.update("garbage".getBytes());
+        state.digest();
+        assertEquals("Hash is invalid", Blake2_DIGEST_EMPTY_STRING, HEX.encode(state.digest()));
+
+        state.update(Blake2_MESSAGE.getBytes());
+        state.reset();
+        state.update(Blake2_MESSAGE.getBytes());
+        assertEquals("Hash is invalid", Blake2_DIGEST, HEX.encode(state.digest()));
+    }
+
+    @Test
+    public void testBlake2StateByteBuffers() throws Exception {
+        byte[] message = Blake2_MESSAGE.getBytes();
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length);
+        direct.put(message);
+        direct.flip();
+        direct.position(10);
+
+        Hash.Blake2bState state = new Hash.Blake2bState();
+        state.update(ByteBuffer.wrap(message, 0, 10));
+        state.update(direct);
+        assertEquals(0, direct.remaining());
+        assertEquals("Hash is invalid", Blake2_DIGEST, HEX.encode(state.digest()));
+    }
+
+    @Test
+    public void testBlake2StateWithKeyAndLength() throws Exception {
+        byte[] message = Blake2_MESSAGE.getBytes();
+        byte[] key = Blake2_KEY.getBytes();
+        byte[] expected = new byte[BLAKE2B_BYTES_MAX];
+        sodium().crypto_generichash_blake2b(expected, expected.length, message, message.length, key, key.length);
+
+        Hash.Blake2bState state = new Hash.Blake2bState(key, BLAKE2B_BYTES_MAX);
+        for (byte b : message) {
+            state.update(new byte[]{b});
+        }
+        assertTrue("Hash is invalid", Arrays.equals(expected, state.digest()));
+    }
+
+    @Test
+    public void testBlake2StateCopiesKey() throws Exception {
+        byte[] message = Blake2_MESSAGE.getBytes();
+        byte[] key = Blake2_KEY.getBytes();
+        byte[] expected = new byte[BLAKE2B_OUTBYTES];
+        sodium().crypto_generichash_blake2b(expected, expected.length, message, message.length, key, key.length);
+
+        Hash.Blake2bState state = new Hash.Blake2bState(key, BLAKE2B_OUTBYTES);
+        Arrays.fill(key, (byte) 0);
+        state.update(message);
+        assertTrue("Hash is invalid", Arrays.equals(expected, state.digest()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBlake2StateRejectsUseAfterClose() throws Exception {
+        Hash.Blake2bState state = new Hash.Blake2bState(Blake2_KEY.getBytes(), BLAKE2B_OUTBYTES);
+        state.update(Blake2_MESSAGE.getBytes());
+        state.close();
+        state.digest();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBlake2StateRejectsInvalidLength() throws Exception {
+        new Hash.Blake2bState(BLAKE2B_BYTES_MAX + 1);
+        fail("Should raise an exception");
+    }
+
+    @Test
+    public void testSha256State() throws Exception {
+        byte[] message = SHA256_MESSAGE.getBytes();
+        Hash.Sha256State state = new Hash.Sha256State();
+        state.update(message, 0, 5).update(message, 5, message.length - 5);
+        assertEquals("Hash is invalid", SHA256_DIGEST, HEX.encode(state.digest()));
+        assertEquals("Hash is invalid", SHA256_DIGEST_EMPTY_STRING, HEX.encode(state.digest()));
+    }
+
+    @Test
+    public void testSha512State() throws Exception {
+        byte[] message = SHA512_MESSAGE.getBytes();
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length);
+        direct.put(message);
+        direct.flip();
+
+        Hash.Sha512State state = new Hash.Sha512State();
+        state.update(direct);
+        assertEquals("Hash is invalid", SHA512_DIGEST, HEX.encode(state.digest()));
+    }
+
+    @Test
+    public void testSha512StateFromInputStream() throws Exception {
+        byte[] message = SHA512_MESSAGE.getBytes();
+        Hash.Sha512State state = new Hash.Sha512State();
+        assertEquals(message.length, state.update(new ByteArrayInputStream(message)));
+        assertEquals("Hash is invalid", SHA512_DIGEST, HEX.encode(state.digest()));
+    }
+
+    @Test
+    public void testSha256StateFromFileChannel() throws Exception {
+        byte[] message = randomMessage(200 * 1024 + 17);
+        File file = writeTempFile(message);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            Hash.Sha256State state = new Hash.Sha256State();
+            assertEquals(message.length, state.update(channel));
+            assertTrue("Hash is invalid", Arrays.equals(hash.sha256(message), state.digest()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testHashFile() throws Exception {
+        byte[] message = randomMessage(100 * 1024 + 3);
+        File file = writeTempFile(message);
+
+        assertTrue("Hash is invalid", Arrays.equals(hash.sha256(message), hash.sha256(file)));
+        assertTrue("Hash is invalid", Arrays.equals(hash.sha512(message), hash.sha512(file)));
+        assertTrue("Hash is invalid", Arrays.equals(hash.blake2(message), hash.blake2(file)));
+    }
+
+    @Test
+    public void testHashEmptyFile() throws Exception {
+        File file = writeTempFile(new byte[0]);
+        assertEquals("Hash is invalid", Blake2_DIGEST_EMPTY_STRING, HEX.encode(hash.blake2(file)));
+    }
+
+    @Test
+    public void testHashFileInWindows() throws Exception {
+        byte[] message = randomMessage(100 * 1024 + 3);
+        File file = writeTempFile(message);
+
+        Hash.Sha512State state = new Hash.Sha512State();
+        assertEquals(message.length, state.update(file, 4096));
+        assertTrue("Hash is invalid", Arrays.equals(hash.sha512(message), state.digest()));
+    }
+
+    private static byte[] randomMessage(int size) {
+        byte[] message = new byte[size];
+        new java.util.Random(42).nextBytes(message);
+        return message;
+    }
+
+    private static File writeTempFile(byte[] data) throws Exception {
+        File file = File.createTempFile("kalium", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
 }
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN;
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PasswordCalibratorTest {
+
+    private final PasswordCalibrator calibrator = new PasswordCalibrator();
+
+    @Test
+    public void testCalibrateWithinTarget() throws Exception {
+        PasswordCalibrator.Parameters parameters = calibrator.calibrate(300, TimeUnit.MILLISECONDS,
+                2L * PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN, 1);
+        assertTrue(parameters.getMemlimit() <= 2L * PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN);
+        assertTrue(parameters.getOpslimit() >= PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN);
+        if (parameters.getLatency(TimeUnit.MILLISECONDS) > 300) {
+            assertEquals(PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN, parameters.getOpslimit());
+        }
+    }
+
+    @Test
+    public void testUnreachableTargetReturnsMinimum() throws Exception {
+        PasswordCalibrator.Parameters parameters = calibrator.calibrate(1, TimeUnit.NANOSECONDS,
+                4L * PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN, 2);
+        assertEquals(PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_MIN, parameters.getOpslimit());
+        assertEquals(PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN, parameters.getMemlimit());
+        assertTrue(parameters.getLatency(TimeUnit.NANOSECONDS) > 1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectCeilingBelowMinimum() throws Exception {
+        calibrator.calibrate(1, TimeUnit.SECONDS, PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_MIN, 2);
+    }
+}
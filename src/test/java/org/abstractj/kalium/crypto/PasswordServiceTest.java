@@ -0,0 +1,144 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN;
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN;
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+import static org.abstractj.kalium.NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_INTERACTIVE;
+import static org.abstractj.kalium.encoders.Encoder.HEX;
+import static org.abstractj.kalium.fixture.TestVectors.PWHASH_DIGEST;
+import static org.abstractj.kalium.fixture.TestVectors.PWHASH_MESSAGE;
+import static org.abstractj.kalium.fixture.TestVectors.PWHASH_SALT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PasswordServiceTest {
+
+    private static final int OPSLIMIT = PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_INTERACTIVE;
+    private static final long MEMLIMIT = PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE;
+
+    private final PasswordService service = new PasswordService(2, 16, 2 * MEMLIMIT);
+
+    @After
+    public void shutdown() throws Exception {
+        service.shutdown();
+        service.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDeriveKey() throws Exception {
+        Future<byte[]> key = service.deriveKey(64, PWHASH_MESSAGE.getBytes(), PWHASH_SALT.getBytes(),
+                OPSLIMIT, MEMLIMIT);
+        assertEquals(PWHASH_DIGEST, HEX.encode(key.get()));
+        assertEquals(1, service.getCompletedCount());
+        assertTrue(service.getMaxLatency(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testHashAndVerify() throws Exception {
+        String hashed = service.hash(PWHASH_MESSAGE.getBytes(), HEX, OPSLIMIT, MEMLIMIT).get();
+        assertTrue(service.verify(HEX.decode(hashed), PWHASH_MESSAGE.getBytes()).get());
+        assertFalse(service.verify(HEX.decode(hashed), ("i" + PWHASH_MESSAGE).getBytes()).get());
+        assertEquals(0, service.getReservedMemory());
+    }
+
+    @Test
+    public void testConcurrentOperations() throws Exception {
+        List<Future<byte[]>> keys = new ArrayList<Future<byte[]>>();
+        for (int i = 0; i < 6; i++) {
+            keys.add(service.deriveKey(64, PWHASH_MESSAGE.getBytes(), PWHASH_SALT.getBytes(), OPSLIMIT, MEMLIMIT));
+        }
+        for (Future<byte[]> key : keys) {
+            assertEquals(PWHASH_DIGEST, HEX.encode(key.get()));
+        }
+        assertEquals(6, service.getCompletedCount());
+        assertEquals(0, service.getQueueDepth());
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        final BlockingQueue<Object> results = new LinkedBlockingQueue<Object>();
+        service.deriveKey(64, PWHASH_MESSAGE.getBytes(), PWHASH_SALT.getBytes(), OPSLIMIT, MEMLIMIT,
+                new PasswordService.Callback<byte[]>() {
+                    @Override
+                    public void onSuccess(byte[] result) {
+                        results.add(result);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        results.add(error);
+                    }
+                });
+        assertEquals(PWHASH_DIGEST, HEX.encode((byte[]) results.poll(10, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testWaitingForMemoryDoesNotHoldThread() throws Exception {
+        PasswordService single = new PasswordService(2, 16, MEMLIMIT);
+        try {
+            List<Future<byte[]>> keys = new ArrayList<Future<byte[]>>();
+            for (int i = 0; i < 3; i++) {
+                keys.add(single.deriveKey(64, PWHASH_MESSAGE.getBytes(), PWHASH_SALT.getBytes(), OPSLIMIT, MEMLIMIT));
+            }
+            assertTrue(single.getActiveCount() <= 1);
+            for (Future<byte[]> key : keys) {
+                assertEquals(PWHASH_DIGEST, HEX.encode(key.get()));
+            }
+            assertEquals(0, single.getReservedMemory());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemoryCostOfScryptHash() throws Exception {
+        String hashed = new Password().hash(PWHASH_MESSAGE.getBytes(), HEX, OPSLIMIT, MEMLIMIT);
+        long cost = PasswordService.memoryCost(HEX.decode(hashed));
+        assertTrue(cost > 0 && cost <= MEMLIMIT);
+    }
+
+    @Test
+    public void testMemoryCostOfArgon2Hash() throws Exception {
+        String hashed = service.hashArgon2id(PWHASH_MESSAGE.getBytes(), HEX, PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                PWHASH_ARGON2ID_MEMLIMIT_MIN).get();
+        assertEquals(PWHASH_ARGON2ID_MEMLIMIT_MIN, PasswordService.memoryCost(HEX.decode(hashed)));
+        assertTrue(service.verify(HEX.decode(hashed), PWHASH_MESSAGE.getBytes()).get());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectMemoryLimitOverBudget() throws Exception {
+        service.deriveKey(64, PWHASH_MESSAGE.getBytes(), PWHASH_SALT.getBytes(), OPSLIMIT, 4 * MEMLIMIT);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidPool() throws Exception {
+        new PasswordService(0, 1, MEMLIMIT);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertTrue;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
+import static org.abstractj.kalium.encoders.Encoder.RAW;
 import static org.abstractj.kalium.fixture.TestVectors.*;
 import static org.abstractj.kalium.fixture.TestVectors.PWHASH_MESSAGE;
 import static org.abstractj.kalium.fixture.TestVectors.PWHASH_SALT;
@@ -93,4 +94,88 @@ public class PasswordTest {
         // Must receive expected size
         assertEquals(NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_KEYBYTES, key.length);
     }
+
+    @Test
+    public void testArgon2idKeyDerivation() {
+        byte[] salt = new byte[NaCl.Sodium.PWHASH_SALTBYTES];
+        byte[] key = password.deriveKey(NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_KEYBYTES,
+                PWHASH_MESSAGE.getBytes(),
+                salt,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ALG_ARGON2ID13);
+        byte[] again = password.deriveKey(NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_KEYBYTES,
+                PWHASH_MESSAGE.getBytes(),
+                salt,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ALG_ARGON2ID13);
+
+        assertEquals(NaCl.Sodium.XSALSA20_POLY1305_SECRETBOX_KEYBYTES, key.length);
+        assertEquals(HEX.encode(key), HEX.encode(again));
+    }
+
+    @Test
+    public void testArgon2iKeyDerivationDiffers() {
+        byte[] salt = new byte[NaCl.Sodium.PWHASH_SALTBYTES];
+        byte[] argon2id = password.deriveKey(32, PWHASH_MESSAGE.getBytes(), salt, 3,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN, NaCl.Sodium.PWHASH_ALG_ARGON2ID13);
+        byte[] argon2i = password.deriveKey(32, PWHASH_MESSAGE.getBytes(), salt, 3,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN, NaCl.Sodium.PWHASH_ALG_ARGON2I13);
+        assertTrue(!HEX.encode(argon2id).equals(HEX.encode(argon2i)));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testArgon2RejectInvalidSalt() {
+        password.deriveKey(32, PWHASH_MESSAGE.getBytes(), PWHASH_SALT.getBytes(), 3,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN, NaCl.Sodium.PWHASH_ALG_ARGON2ID13);
+    }
+
+    @Test
+    public void testArgon2idStorage() {
+        String result = password.hashArgon2id(PWHASH_MESSAGE.getBytes(),
+                HEX,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN);
+        byte[] hashed = HEX.decode(result);
+
+        assertTrue("Invalid password", password.verify(hashed, PWHASH_MESSAGE.getBytes()));
+        assertTrue("Valid password", !password.verify(hashed, ("i" + PWHASH_MESSAGE).getBytes()));
+    }
+
+    @Test
+    public void testArgon2idStorageWithoutTerminator() {
+        String result = password.hashArgon2id(PWHASH_MESSAGE.getBytes(),
+                RAW,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN);
+        byte[] hashed = result.substring(0, result.indexOf('\0')).getBytes();
+
+        assertTrue("Invalid password", password.verify(hashed, PWHASH_MESSAGE.getBytes()));
+    }
+
+    @Test
+    public void testNeedsRehash() {
+        byte[] hashed = HEX.decode(password.hashArgon2id(PWHASH_MESSAGE.getBytes(),
+                HEX,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN));
+        assertTrue(!password.needsRehash(hashed,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN));
+        assertTrue(password.needsRehash(hashed,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_MIN + 1,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_MIN));
+    }
+
+    @Test
+    public void testScryptHashNeedsRehash() {
+        byte[] hashed = HEX.decode(password.hash(PWHASH_MESSAGE.getBytes(),
+                HEX,
+                NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_OPSLIMIT_INTERACTIVE,
+                NaCl.Sodium.PWHASH_SCRYPTSALSA208SHA256_MEMLIMIT_INTERACTIVE));
+        assertTrue(password.needsRehash(hashed,
+                NaCl.Sodium.PWHASH_ARGON2ID_OPSLIMIT_INTERACTIVE,
+                NaCl.Sodium.PWHASH_ARGON2ID_MEMLIMIT_INTERACTIVE));
+    }
 }
@@ -18,10 +18,14 @@ package org.abstractj.kalium.crypto;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RandomTest {
 
@@ -48,4 +52,125 @@ public class RandomTest {
         final int size = 32;
         assertFalse("Should produce different random bytes", Arrays.equals(new Random().randomBytes(), new Random().randomBytes(size)));
     }
+
+    private static boolean isZero(byte[] buffer, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            if (buffer[i] != 0)
+                return false;
+        }
+        return true;
+    }
+
+    @Test
+    public void testFillsOffsetRange() throws Exception {
+        byte[] buffer = new byte[64];
+        new Random().randomBytes(buffer, 16, 32);
+        assertTrue(isZero(buffer, 0, 16));
+        assertFalse(isZero(buffer, 16, 32));
+        assertTrue(isZero(buffer, 48, 16));
+    }
+
+    @Test
+    public void testBufferedFillsOffsetRange() throws Exception {
+        byte[] buffer = new byte[64];
+        Random.buffered().randomBytes(buffer, 8, 24);
+        assertTrue(isZero(buffer, 0, 8));
+        assertFalse(isZero(buffer, 8, 24));
+        assertTrue(isZero(buffer, 32, 32));
+    }
+
+    @Test
+    public void testBufferedProducesDifferentBytesAcrossRefills() throws Exception {
+        Random random = new Random(64);
+        byte[] previous = random.randomBytes(24);
+        for (int i = 0; i < 20; i++) {
+            byte[] next = random.randomBytes(24);
+            assertEquals(24, next.length);
+            assertFalse("Should produce different random bytes", Arrays.equals(previous, next));
+            previous = next;
+        }
+    }
+
+    @Test
+    public void testBufferedLargeRequest() throws Exception {
+        byte[] buffer = new Random(64).randomBytes(1000);
+        assertFalse(isZero(buffer, 0, 32));
+        assertFalse(isZero(buffer, 968, 32));
+    }
+
+    @Test
+    public void testFillsHeapBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(48);
+        buffer.position(16);
+        Random.buffered().randomBytes(buffer);
+        assertEquals(48, buffer.position());
+        assertTrue(isZero(buffer.array(), 0, 16));
+        assertFalse(isZero(buffer.array(), 16, 32));
+    }
+
+    @Test
+    public void testFillsDirectBuffer() throws Exception {
+        for (Random random : new Random[]{new Random(), Random.buffered()}) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(48);
+            buffer.position(16);
+            random.randomBytes(buffer);
+            assertEquals(48, buffer.position());
+            byte[] contents = new byte[48];
+            buffer.flip();
+            buffer.get(contents);
+            assertTrue(isZero(contents, 0, 16));
+            assertFalse(isZero(contents, 16, 32));
+        }
+    }
+
+    @Test
+    public void testRejectReadOnlyBuffer() throws Exception {
+        ByteBuffer[] buffers = {ByteBuffer.allocate(48).asReadOnlyBuffer(),
+                ByteBuffer.allocateDirect(48).asReadOnlyBuffer()};
+        for (Random random : new Random[]{new Random(), Random.buffered()}) {
+            for (ByteBuffer buffer : buffers) {
+                try {
+                    random.randomBytes(buffer);
+                    fail("Read-only buffer should be rejected");
+                } catch (ReadOnlyBufferException e) {
+                    assertEquals(0, buffer.position());
+                }
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidRange() throws Exception {
+        new Random().randomBytes(new byte[16], 8, 16);
+    }
+
+    @Test
+    public void testNextIntWithinBound() throws Exception {
+        for (Random random : new Random[]{new Random(), Random.buffered()}) {
+            int[] counts = new int[3];
+            for (int i = 0; i < 300; i++) {
+                counts[random.nextInt(3)]++;
+            }
+            for (int count : counts) {
+                assertTrue(count > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testNextLongUsesFullRange() throws Exception {
+        for (Random random : new Random[]{new Random(), new Random(64)}) {
+            long bits = 0;
+            for (int i = 0; i < 64; i++) {
+                bits |= random.nextLong();
+            }
+            assertEquals(-1L, bits);
+            assertFalse(random.nextInt() == random.nextInt() && random.nextInt() == random.nextInt());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidBound() throws Exception {
+        new Random().nextInt(0);
+    }
 }
@@ -5,9 +5,11 @@ import org.junit.Test;
 import java.security.SecureRandom;
 
 import static org.abstractj.kalium.NaCl.Sodium.PUBLICKEY_BYTES;
+import static org.abstractj.kalium.NaCl.Sodium.SEAL_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.SECRETKEY_BYTES;
 import static org.abstractj.kalium.NaCl.sodium;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 public class SealedBoxTest {
 
@@ -44,4 +46,24 @@ public class SealedBoxTest {
         SealedBox sb2 = new SealedBox(sk, pk);
         sb2.decrypt(c);
     }
+
+    @Test
+    public void testEncryptDecryptIntoBuffer() throws Exception {
+        SecureRandom r = new SecureRandom();
+        byte[] pk = new byte[PUBLICKEY_BYTES];
+        byte[] sk = new byte[SECRETKEY_BYTES];
+        byte[] m = new byte[r.nextInt(1000)];
+
+        sodium().crypto_box_curve25519xsalsa20poly1305_keypair(pk, sk);
+        r.nextBytes(m);
+
+        byte[] c = new byte[m.length + SEAL_BYTES + 7];
+        int ctLength = new SealedBox(pk).encrypt(m, 0, m.length, c, 7);
+        assertEquals(m.length + SEAL_BYTES, ctLength);
+
+        byte[] m2 = new byte[m.length];
+        int length = new SealedBox(pk, sk).decrypt(c, 7, ctLength, m2, 0);
+        assertEquals(m.length, length);
+        assertArrayEquals(m, m2);
+    }
 }
@@ -18,13 +18,17 @@ package org.abstractj.kalium.crypto;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import static org.abstractj.kalium.NaCl.Sodium.MAC_BYTES;
+import static org.abstractj.kalium.crypto.Util.slice;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 import static org.abstractj.kalium.fixture.TestVectors.BOX_CIPHERTEXT;
 import static org.abstractj.kalium.fixture.TestVectors.BOX_MESSAGE;
 import static org.abstractj.kalium.fixture.TestVectors.BOX_NONCE;
 import static org.abstractj.kalium.fixture.TestVectors.SECRET_KEY;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -90,4 +94,181 @@ public class SecretBoxTest {
         box.decrypt(nonce, ciphertext);
         fail("Should raise an exception");
     }
+
+    @Test
+    public void testEncryptDetached() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        byte[] mac = new byte[MAC_BYTES];
+        byte[] result = box.encryptDetached(nonce, message, mac);
+        assertTrue("failed to generate mac", Arrays.equals(mac, slice(ciphertext, 0, MAC_BYTES)));
+        assertTrue("failed to generate ciphertext",
+                Arrays.equals(result, slice(ciphertext, MAC_BYTES, ciphertext.length)));
+    }
+
+    @Test
+    public void testDecryptDetached() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] expectedMessage = HEX.decode(BOX_MESSAGE);
+        byte[] mac = new byte[MAC_BYTES];
+        byte[] ciphertext = box.encryptDetached(nonce, expectedMessage, mac);
+
+        byte[] message = box.decryptDetached(nonce, ciphertext, mac);
+        assertTrue("failed to decrypt ciphertext", Arrays.equals(message, expectedMessage));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDecryptDetachedCorruptedMac() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] mac = new byte[MAC_BYTES];
+        byte[] ciphertext = box.encryptDetached(nonce, HEX.decode(BOX_MESSAGE), mac);
+        mac[0] ^= 1;
+
+        box.decryptDetached(nonce, ciphertext, mac);
+        fail("Should raise an exception");
+    }
+
+    @Test
+    public void testEncryptDirectBuffer() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        ByteBuffer nonce = direct(HEX.decode(BOX_NONCE));
+        ByteBuffer src = direct(message);
+        ByteBuffer dst = ByteBuffer.allocateDirect(ciphertext.length);
+
+        int written = box.encrypt(nonce, src, dst);
+        assertEquals(ciphertext.length, written);
+        assertEquals(0, src.remaining());
+        assertEquals(0, dst.remaining());
+
+        byte[] result = new byte[written];
+        dst.flip();
+        dst.get(result);
+        assertTrue("failed to generate ciphertext", Arrays.equals(result, ciphertext));
+    }
+
+    @Test
+    public void testEncryptDirectBufferAtOffset() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        ByteBuffer nonce = direct(HEX.decode(BOX_NONCE));
+        ByteBuffer dst = ByteBuffer.allocateDirect(ciphertext.length + 8);
+        dst.position(8);
+
+        box.encrypt(nonce, direct(message), dst);
+
+        byte[] result = new byte[ciphertext.length];
+        dst.position(8);
+        dst.get(result);
+        assertTrue("failed to generate ciphertext", Arrays.equals(result, ciphertext));
+    }
+
+    @Test
+    public void testDecryptDirectBuffer() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] expectedMessage = HEX.decode(BOX_MESSAGE);
+
+        ByteBuffer nonce = direct(HEX.decode(BOX_NONCE));
+        ByteBuffer src = direct(HEX.decode(BOX_CIPHERTEXT));
+        ByteBuffer dst = ByteBuffer.allocateDirect(expectedMessage.length);
+
+        int written = box.decrypt(nonce, src, dst);
+        assertEquals(expectedMessage.length, written);
+
+        byte[] message = new byte[written];
+        dst.flip();
+        dst.get(message);
+        assertTrue("failed to decrypt ciphertext", Arrays.equals(message, expectedMessage));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDecryptCorruptedDirectBuffer() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+        ciphertext[23] = ' ';
+
+        ByteBuffer nonce = direct(HEX.decode(BOX_NONCE));
+        ByteBuffer dst = ByteBuffer.allocateDirect(ciphertext.length);
+
+        box.decrypt(nonce, direct(ciphertext), dst);
+        fail("Should raise an exception");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testEncryptDirectBufferTooSmall() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+
+        ByteBuffer nonce = direct(HEX.decode(BOX_NONCE));
+        ByteBuffer dst = ByteBuffer.allocateDirect(message.length);
+
+        box.encrypt(nonce, direct(message), dst);
+        fail("Should raise an exception");
+    }
+
+    private static ByteBuffer direct(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void testEncryptIntoBuffer() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        byte[] in = new byte[message.length + 3];
+        System.arraycopy(message, 0, in, 3, message.length);
+        byte[] out = new byte[ciphertext.length + 5];
+
+        int written = box.encrypt(nonce, in, 3, message.length, out, 5);
+        assertEquals(ciphertext.length, written);
+        assertTrue("failed to generate ciphertext",
+                Arrays.equals(slice(out, 5, out.length), ciphertext));
+    }
+
+    @Test
+    public void testDecryptIntoBuffer() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+
+        byte[] nonce = HEX.decode(BOX_NONCE);
+        byte[] expectedMessage = HEX.decode(BOX_MESSAGE);
+        byte[] ciphertext = HEX.decode(BOX_CIPHERTEXT);
+
+        byte[] in = new byte[ciphertext.length + 3];
+        System.arraycopy(ciphertext, 0, in, 3, ciphertext.length);
+        byte[] out = new byte[expectedMessage.length + 5];
+
+        int written = box.decrypt(nonce, in, 3, ciphertext.length, out, 5);
+        assertEquals(expectedMessage.length, written);
+        assertTrue("failed to decrypt ciphertext",
+                Arrays.equals(slice(out, 5, out.length), expectedMessage));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testEncryptIntoShortBuffer() throws Exception {
+        SecretBox box = new SecretBox(SECRET_KEY, HEX);
+        byte[] message = HEX.decode(BOX_MESSAGE);
+
+        box.encrypt(HEX.decode(BOX_NONCE), message, 0, message.length, new byte[message.length], 0);
+        fail("Should raise an exception");
+    }
 }
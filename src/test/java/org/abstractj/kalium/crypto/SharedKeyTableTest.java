@@ -0,0 +1,171 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.abstractj.kalium.keys.KeyPair;
+import org.abstractj.kalium.keys.PrivateKey;
+import org.abstractj.kalium.keys.PublicKey;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.abstractj.kalium.encoders.Encoder.HEX;
+import static org.abstractj.kalium.NaCl.Sodium.BEFORENMBYTES;
+import static org.abstractj.kalium.fixture.TestVectors.ALICE_PUBLIC_KEY;
+import static org.abstractj.kalium.fixture.TestVectors.BOB_PRIVATE_KEY;
+import static org.abstractj.kalium.fixture.TestVectors.BOB_PUBLIC_KEY;
+import static org.abstractj.kalium.fixture.TestVectors.BOX_CIPHERTEXT;
+import static org.abstractj.kalium.fixture.TestVectors.BOX_MESSAGE;
+import static org.abstractj.kalium.fixture.TestVectors.BOX_NONCE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SharedKeyTableTest {
+
+    private static final PublicKey ALICE = new PublicKey(ALICE_PUBLIC_KEY);
+    private static final PrivateKey BOB = new PrivateKey(BOB_PRIVATE_KEY);
+    private static final PublicKey BOB_PUBLIC = new PublicKey(BOB_PUBLIC_KEY);
+
+    private static SharedKeyTable table(int peers) {
+        SharedKeyTable table = new SharedKeyTable(BOB_PUBLIC);
+        table.put(ALICE, new Box(ALICE, BOB));
+        for (int i = 1; i < peers; i++) {
+            PublicKey peer = new KeyPair().getPublicKey();
+            table.put(peer, new Box(peer, BOB));
+        }
+        return table;
+    }
+
+    private static void assertEncryptsForAlice(Box box) {
+        byte[] ciphertext = box.encrypt(HEX.decode(BOX_NONCE), HEX.decode(BOX_MESSAGE));
+        assertTrue(Arrays.equals(HEX.decode(BOX_CIPHERTEXT), ciphertext));
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        SharedKeyTable table = table(3);
+        assertEquals(3, table.size());
+        assertTrue(table.contains(ALICE));
+        assertEncryptsForAlice(table.get(ALICE));
+        assertNull(table.get(new KeyPair().getPublicKey()));
+    }
+
+    @Test
+    public void testRoundTripStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table(5).writeTo(out);
+        assertEquals(4 + 1 + 32 + 4 + 5 * 64, out.size());
+
+        SharedKeyTable loaded = SharedKeyTable.readFrom(new ByteArrayInputStream(out.toByteArray()), BOB_PUBLIC);
+        assertEquals(5, loaded.size());
+        assertEncryptsForAlice(loaded.get(ALICE));
+    }
+
+    @Test
+    public void testRoundTripFile() throws Exception {
+        final File file = File.createTempFile("kalium", ".kskt");
+        file.deleteOnExit();
+        table(2).save(file);
+        table(3).save(file);
+        SharedKeyTable loaded = SharedKeyTable.load(file, BOB_PUBLIC);
+        assertEquals(3, loaded.size());
+        assertEncryptsForAlice(loaded.get(ALICE));
+        String[] leftovers = file.getParentFile().list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("." + file.getName());
+            }
+        });
+        assertEquals(0, leftovers.length);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectTableOfAnotherKeyPair() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table(2).writeTo(out);
+        SharedKeyTable.readFrom(new ByteArrayInputStream(out.toByteArray()), new KeyPair().getPublicKey());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectBadMagic() throws Exception {
+        SharedKeyTable.readFrom(new ByteArrayInputStream(new byte[16]), BOB_PUBLIC);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectTruncatedTable() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table(2).writeTo(out);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+        SharedKeyTable.readFrom(new ByteArrayInputStream(truncated), BOB_PUBLIC);
+    }
+
+    @Test
+    public void testRemoveAndClear() throws Exception {
+        SharedKeyTable table = table(3);
+        table.remove(ALICE);
+        assertNull(table.get(ALICE));
+        table.clear();
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testConcurrentPutAndGet() throws Exception {
+        final SharedKeyTable table = new SharedKeyTable(BOB_PUBLIC);
+        final byte[] peer = ALICE.toBytes();
+        final byte[][] sharedKeys = new byte[2][BEFORENMBYTES];
+        Arrays.fill(sharedKeys[0], (byte) 1);
+        Arrays.fill(sharedKeys[1], (byte) 2);
+        table.put(peer, sharedKeys[0]);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100000; i++) {
+                    table.put(peer, sharedKeys[i & 1]);
+                }
+            }
+        });
+        writer.start();
+        try {
+            while (writer.isAlive()) {
+                byte[] sharedKey = table.get(peer).getSharedKey();
+                assertTrue("Zeroed or partially replaced key",
+                        Arrays.equals(sharedKeys[0], sharedKey) || Arrays.equals(sharedKeys[1], sharedKey));
+            }
+        } finally {
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testSharedKeyExport() throws Exception {
+        Box box = new Box(ALICE, BOB);
+        assertEquals(BEFORENMBYTES, box.getSharedKey().length);
+        assertEncryptsForAlice(Box.fromSharedKey(box.getSharedKey()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidSharedKey() throws Exception {
+        Box.fromSharedKey(new byte[16]);
+    }
+}
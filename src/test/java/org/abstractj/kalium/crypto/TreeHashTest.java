@@ -0,0 +1,128 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.crypto;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TreeHashTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        byte[] message = randomMessage(CHUNK_SIZE * 9 + 123);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] parallel = new TreeHash(CHUNK_SIZE, executor).hash(message).root();
+            byte[] sequential = new TreeHash(CHUNK_SIZE).hash(message).root();
+            assertTrue("Hash is invalid", Arrays.equals(sequential, parallel));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLeafCount() throws Exception {
+        assertEquals(1, new TreeHash(CHUNK_SIZE).hash(new byte[0]).leafCount());
+        assertEquals(1, new TreeHash(CHUNK_SIZE).hash(new byte[CHUNK_SIZE]).leafCount());
+        assertEquals(2, new TreeHash(CHUNK_SIZE).hash(new byte[CHUNK_SIZE + 1]).leafCount());
+    }
+
+    @Test
+    public void testRootDependsOnLengthAndChunking() throws Exception {
+        byte[] root = new TreeHash(CHUNK_SIZE).hash(new byte[CHUNK_SIZE * 2]).root();
+        assertFalse(Arrays.equals(root, new TreeHash(CHUNK_SIZE).hash(new byte[CHUNK_SIZE * 2 + 1]).root()));
+        assertFalse(Arrays.equals(root, new TreeHash(CHUNK_SIZE * 2).hash(new byte[CHUNK_SIZE * 2]).root()));
+    }
+
+    @Test
+    public void testRootDiffersFromPlainBlake2() throws Exception {
+        byte[] message = randomMessage(100);
+        byte[] root = new TreeHash(CHUNK_SIZE).hash(message).root();
+        assertFalse(Arrays.equals(new Hash().blake2(message), root));
+    }
+
+    @Test
+    public void testFileMatchesArray() throws Exception {
+        byte[] message = randomMessage(CHUNK_SIZE * 5 + 7);
+        File file = File.createTempFile("kalium", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(message);
+        } finally {
+            out.close();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            TreeHash treeHash = new TreeHash(CHUNK_SIZE, executor);
+            assertTrue("Hash is invalid",
+                    Arrays.equals(treeHash.hash(message).root(), treeHash.hash(file).root()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testUpdateChunk() throws Exception {
+        byte[] message = randomMessage(CHUNK_SIZE * 7 + 10);
+        TreeHash treeHash = new TreeHash(CHUNK_SIZE);
+        TreeHash.Tree tree = treeHash.hash(message);
+
+        byte[] chunk = randomMessage(CHUNK_SIZE);
+        System.arraycopy(chunk, 0, message, CHUNK_SIZE * 3, CHUNK_SIZE);
+        tree.update(3, chunk);
+
+        assertTrue("Hash is invalid", Arrays.equals(treeHash.hash(message).root(), tree.root()));
+    }
+
+    @Test
+    public void testUpdateLastChunkLength() throws Exception {
+        byte[] message = randomMessage(CHUNK_SIZE * 2 + 10);
+        TreeHash treeHash = new TreeHash(CHUNK_SIZE);
+        TreeHash.Tree tree = treeHash.hash(message);
+
+        tree.update(2, message, CHUNK_SIZE * 2, 5);
+
+        byte[] expected = Arrays.copyOf(message, CHUNK_SIZE * 2 + 5);
+        assertEquals(expected.length, tree.length());
+        assertTrue("Hash is invalid", Arrays.equals(treeHash.hash(expected).root(), tree.root()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUpdateRejectsShortInnerChunk() throws Exception {
+        TreeHash.Tree tree = new TreeHash(CHUNK_SIZE).hash(new byte[CHUNK_SIZE * 3]);
+        tree.update(1, new byte[CHUNK_SIZE - 1]);
+        fail("Should raise an exception");
+    }
+
+    private static byte[] randomMessage(int size) {
+        return new Random().randomBytes(size);
+    }
+}
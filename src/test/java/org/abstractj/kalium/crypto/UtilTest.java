@@ -19,6 +19,13 @@ package org.abstractj.kalium.crypto;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class UtilTest {
     @Test
     public void testPrependZeros() throws Exception {
@@ -31,4 +38,48 @@ public class UtilTest {
     public void testDataNull() {
         Util.checkLength(null, 3);
     }
+
+    @Test
+    public void testRunAllKeepsOrder() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 10; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return value;
+                }
+            });
+        }
+        List<Integer> expected = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        Assert.assertEquals(expected, Util.runAll(tasks, null, "Test"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Assert.assertEquals(expected, Util.runAll(tasks, executor, "Test"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRunAllWrapsCheckedExceptions() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                throw new Exception("boom");
+            }
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Util.runAll(tasks, executor, "Test");
+            Assert.fail("Should raise an exception");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("Test failed", e.getMessage());
+            Assert.assertEquals("boom", e.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.abstractj.kalium.encoders.Encoder.BASE64;
+import static org.abstractj.kalium.encoders.Encoder.BASE64_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Base64Test {
+
+    private static final String[][] RFC4648 = {
+            {"", ""}, {"f", "Zg=="}, {"fo", "Zm8="}, {"foo", "Zm9v"},
+            {"foob", "Zm9vYg=="}, {"fooba", "Zm9vYmE="}, {"foobar", "Zm9vYmFy"}};
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testEncodeTestVectors() throws Exception {
+        for (String[] vector : RFC4648) {
+            assertEquals(vector[1], BASE64.encode(vector[0].getBytes()));
+            assertEquals(vector[1].replace("=", ""), Base64.STANDARD_NO_PADDING.encode(vector[0].getBytes()));
+        }
+    }
+
+    @Test
+    public void testDecodeTestVectors() throws Exception {
+        for (String[] vector : RFC4648) {
+            assertEquals(vector[0], new String(BASE64.decode(vector[1])));
+            assertEquals(vector[0], new String(Base64.STANDARD_NO_PADDING.decode(vector[1].replace("=", ""))));
+        }
+    }
+
+    @Test
+    public void testUrlSafeAlphabet() throws Exception {
+        byte[] data = {(byte) 0xfb, (byte) 0xff, (byte) 0xbf};
+        assertEquals("+/+/", BASE64.encode(data));
+        assertEquals("-_-_", BASE64_URL.encode(data));
+        assertEquals("-_8", BASE64_URL.encode(new byte[]{(byte) 0xfb, (byte) 0xff}));
+        assertEquals("-_8=", Base64.URL_SAFE.encode(new byte[]{(byte) 0xfb, (byte) 0xff}));
+        assertTrue(Arrays.equals(data, BASE64_URL.decode("-_-_")));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Base64[] variants = {Base64.STANDARD, Base64.STANDARD_NO_PADDING, Base64.URL_SAFE, Base64.URL_SAFE_NO_PADDING};
+        for (Base64 variant : variants) {
+            for (int length = 0; length < 100; length++) {
+                byte[] data = randomBytes(length);
+                String encoded = variant.encode(data);
+                assertEquals(variant.encodedLength(length), encoded.length());
+                assertTrue(Arrays.equals(data, variant.decode(encoded)));
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectIllegalCharacter() throws Exception {
+        BASE64.decode("Zm9v-mFy");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectMissingPadding() throws Exception {
+        BASE64.decode("Zm8");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectUnexpectedPadding() throws Exception {
+        BASE64_URL.decode("Zm8=");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidLength() throws Exception {
+        BASE64_URL.decode("Zm9vY");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectNonZeroTrailingBits() throws Exception {
+        BASE64.decode("Zm9=");
+    }
+
+    @Test
+    public void testEncodeIntoCharArray() throws Exception {
+        char[] out = new char[8];
+        Arrays.fill(out, '*');
+        assertEquals(4, BASE64.encodeTo("xfoo".getBytes(), 1, 3, out, 2));
+        assertEquals("**Zm9v**", new String(out));
+    }
+
+    @Test
+    public void testDecodeIntoBuffers() throws Exception {
+        for (ByteBuffer out : new ByteBuffer[]{ByteBuffer.allocate(8), ByteBuffer.allocateDirect(8)}) {
+            out.position(1);
+            assertEquals(6, BASE64.decodeFrom("..Zm9vYmFy..", 2, 8, out));
+            assertEquals(7, out.position());
+            byte[] decoded = new byte[6];
+            out.position(1);
+            out.get(decoded);
+            assertEquals("foobar", new String(decoded));
+        }
+    }
+
+    @Test
+    public void testEncodeFromBuffers() throws Exception {
+        for (ByteBuffer in : new ByteBuffer[]{ByteBuffer.allocate(6), ByteBuffer.allocateDirect(6)}) {
+            in.put("foobar".getBytes()).flip();
+            char[] out = new char[8];
+            assertEquals(8, BASE64.encodeTo(in, out, 0));
+            assertEquals("Zm9vYmFy", new String(out));
+            assertEquals(6, in.position());
+        }
+    }
+
+    @Test
+    public void testEncodingStream() throws Exception {
+        byte[] data = randomBytes(10000);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        OutputStream stream = Base64.URL_SAFE.encodingStream(encoded);
+        stream.write(data[0]);
+        stream.write(data, 1, 4000);
+        stream.flush();
+        stream.write(data, 4001, data.length - 4001);
+        stream.close();
+        assertEquals(Base64.URL_SAFE.encode(data), new String(encoded.toByteArray(), "US-ASCII"));
+    }
+
+    @Test
+    public void testDecodingStream() throws Exception {
+        byte[] data = randomBytes(10001);
+        byte[] encoded = BASE64.encode(data).getBytes("US-ASCII");
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        OutputStream stream = BASE64.decodingStream(decoded);
+        stream.write(encoded, 0, 5000);
+        stream.write(encoded[5000]);
+        stream.write(encoded, 5001, encoded.length - 5001);
+        stream.close();
+        assertTrue(Arrays.equals(data, decoded.toByteArray()));
+    }
+
+    @Test
+    public void testDecodingStreamAroundBlockSize() throws Exception {
+        for (Base64 base64 : new Base64[]{Base64.STANDARD, Base64.URL_SAFE_NO_PADDING}) {
+            for (int len : new int[]{0, 1, 2, 3, 3071, 3072, 3073, 3074, 3075, 6146}) {
+                byte[] data = randomBytes(len);
+                ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+                OutputStream stream = base64.decodingStream(decoded);
+                stream.write(base64.encode(data).getBytes("US-ASCII"));
+                stream.close();
+                assertTrue(base64 + " length " + len, Arrays.equals(data, decoded.toByteArray()));
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDecodingStreamRejectsPaddingBeforeEnd() throws Exception {
+        OutputStream stream = BASE64.decodingStream(new ByteArrayOutputStream());
+        stream.write((BASE64.encode(randomBytes(1)) + BASE64.encode(randomBytes(3))).getBytes("US-ASCII"));
+        stream.close();
+    }
+
+    @Test
+    public void testEncodeToAppendable() throws Exception {
+        byte[] data = randomBytes(10000);
+        StringBuilder out = new StringBuilder();
+        Base64.STANDARD.encodeTo(data, 0, data.length, out);
+        assertEquals(BASE64.encode(data), out.toString());
+    }
+
+    @Test
+    public void testEncodeToWriterAndOtherAppendables() throws Exception {
+        byte[] data = randomBytes(10000);
+        StringWriter writer = new StringWriter();
+        Base64.STANDARD.encodeTo(data, 0, data.length, writer);
+        assertEquals(BASE64.encode(data), writer.toString());
+        StringBuffer buffer = new StringBuffer();
+        Base64.STANDARD.encodeTo(data, 1, data.length - 1, buffer);
+        assertEquals(BASE64.encode(Arrays.copyOfRange(data, 1, data.length)), buffer.toString());
+    }
+
+    @Test
+    public void testEncodeBuffersToAppendable() throws Exception {
+        for (ByteBuffer in : new ByteBuffer[]{ByteBuffer.allocate(6), ByteBuffer.allocateDirect(6)}) {
+            in.put("foobar".getBytes()).flip();
+            StringBuilder out = new StringBuilder();
+            Base64.URL_SAFE_NO_PADDING.encodeTo(in, out);
+            assertEquals("Zm9vYmFy", out.toString());
+            assertEquals(6, in.position());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks {@link HexBulk} against the table-driven code in {@link Hex}. Only
+ * runs where the vectorized version is loaded; the {@code vector-tests}
+ * execution of the jdk17 profile sets {@code kalium.test.vector} so that a
+ * missing Vector API fails instead of skipping.
+ */
+public class HexBulkTest {
+
+    private static final String INVALID = "gG/:@`\u0000 \u00e9\u0130\u0661\uff10\uffff";
+
+    private final Hex hex = new Hex();
+    private final Random random = new Random(42);
+
+    @Before
+    public void requireBulk() {
+        if (Boolean.getBoolean("kalium.test.vector")) {
+            assertTrue("Vectorized HexBulk is not loaded", HexBulk.isAvailable());
+        }
+        assumeTrue(HexBulk.isAvailable());
+    }
+
+    @Test
+    public void testEncodeMatchesScalar() throws Exception {
+        for (int len = 0; len < 100; len++) {
+            byte[] data = new byte[len];
+            random.nextBytes(data);
+            byte[] ascii = new byte[2 * len];
+            int done = HexBulk.encode(data, 0, len, ascii, 0);
+            assertEquals(len - len % 16, done);
+            StringBuilder expected = new StringBuilder();
+            hex.encodeTo(data, 0, done, expected);
+            assertEquals(expected.toString(), new String(ascii, 0, 2 * done, Encoder.CHARSET));
+        }
+    }
+
+    @Test
+    public void testDecodeMatchesScalar() throws Exception {
+        for (int len = 0; len < 200; len += 2) {
+            char[] chars = mixedCase(len);
+            byte[] out = new byte[len / 2];
+            int done = HexBulk.decode(chars, 0, len, out, 0);
+            assertEquals(len - len % 32, done);
+            byte[] expected = new byte[done / 2];
+            hex.decodeFrom(new String(chars), 0, done, expected, 0);
+            assertArrayEquals(expected, Arrays.copyOf(out, done / 2));
+        }
+    }
+
+    @Test
+    public void testDecodeStopsBeforeInvalidCharacter() throws Exception {
+        for (char c : INVALID.toCharArray()) {
+            for (int at = 0; at < 64; at++) {
+                char[] chars = mixedCase(64);
+                chars[at] = c;
+                byte[] out = new byte[32];
+                int done = HexBulk.decode(chars, 0, chars.length, out, 0);
+                assertEquals("character " + (int) c + " at " + at, at - at % 32, done);
+                byte[] expected = new byte[done / 2];
+                hex.decodeFrom(new String(chars), 0, done, expected, 0);
+                assertArrayEquals(expected, Arrays.copyOf(out, done / 2));
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeLargeString() throws Exception {
+        byte[] data = new byte[5000];
+        random.nextBytes(data);
+        String encoded = hex.encode(data);
+        assertArrayEquals(data, hex.decode(encoded));
+        assertArrayEquals(data, hex.decode(encoded.toUpperCase()));
+    }
+
+    @Test
+    public void testDecodeLargeStringReportsInvalidCharacter() throws Exception {
+        byte[] data = new byte[5000];
+        random.nextBytes(data);
+        for (int at : new int[] { 0, 17, 2047, 2048, 9999 }) {
+            char[] chars = hex.encode(data).toCharArray();
+            chars[at] = '\u0130';
+            try {
+                hex.decode(new String(chars));
+                throw new AssertionError("Expected an invalid character at " + at);
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith("at index " + at));
+            }
+        }
+    }
+
+    private char[] mixedCase(int len) {
+        byte[] data = new byte[len / 2];
+        random.nextBytes(data);
+        char[] chars = hex.encode(data).toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (random.nextBoolean())
+                chars[i] = Character.toUpperCase(chars[i]);
+        }
+        return chars;
+    }
+}
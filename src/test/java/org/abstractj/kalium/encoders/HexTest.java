@@ -0,0 +1,147 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.encoders;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HexTest {
+
+    private final Hex hex = new Hex();
+
+    private static byte[] allBytes() {
+        byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static String allBytesHex() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            builder.append(String.format("%02x", i));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testEncode() throws Exception {
+        assertEquals(allBytesHex(), hex.encode(allBytes()));
+        assertEquals("", hex.encode(new byte[0]));
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        assertTrue(Arrays.equals(allBytes(), hex.decode(allBytesHex())));
+        assertTrue(Arrays.equals(allBytes(), hex.decode(allBytesHex().toUpperCase())));
+        assertEquals(0, hex.decode((String) null).length);
+    }
+
+    @Test
+    public void testDecodeCharSequence() throws Exception {
+        assertTrue(Arrays.equals(allBytes(), hex.decode(new StringBuilder(allBytesHex()))));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectOddLength() throws Exception {
+        hex.decode("abc");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectIllegalCharacter() throws Exception {
+        hex.decode("0g");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectNonAsciiCharacter() throws Exception {
+        hex.decode("0\u0661");
+    }
+
+    @Test
+    public void testEncodeIntoCharArray() throws Exception {
+        char[] out = new char[10];
+        Arrays.fill(out, '*');
+        assertEquals(4, hex.encodeTo(new byte[]{1, (byte) 0xab, (byte) 0xcd, 2}, 1, 2, out, 3));
+        assertEquals("***abcd***", new String(out));
+    }
+
+    @Test
+    public void testDecodeIntoByteArray() throws Exception {
+        byte[] out = new byte[4];
+        assertEquals(2, hex.decodeFrom("xxABcdxx", 2, 4, out, 1));
+        assertTrue(Arrays.equals(new byte[]{0, (byte) 0xab, (byte) 0xcd, 0}, out));
+    }
+
+    @Test
+    public void testEncodeFromBuffers() throws Exception {
+        for (ByteBuffer in : new ByteBuffer[]{ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256)}) {
+            in.put(allBytes()).flip();
+            char[] out = new char[512];
+            assertEquals(512, hex.encodeTo(in, out, 0));
+            assertEquals(allBytesHex(), new String(out));
+            assertEquals(256, in.position());
+        }
+    }
+
+    @Test
+    public void testDecodeIntoBuffers() throws Exception {
+        for (ByteBuffer out : new ByteBuffer[]{ByteBuffer.allocate(257), ByteBuffer.allocateDirect(257)}) {
+            out.position(1);
+            String encoded = allBytesHex();
+            assertEquals(256, hex.decodeFrom(encoded, 0, encoded.length(), out));
+            assertEquals(257, out.position());
+            byte[] decoded = new byte[256];
+            out.position(1);
+            out.get(decoded);
+            assertTrue(Arrays.equals(allBytes(), decoded));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectSmallBuffer() throws Exception {
+        hex.decodeFrom("abcd", 0, 4, ByteBuffer.allocate(1));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidRange() throws Exception {
+        hex.encodeTo(new byte[4], 2, 4, new char[8], 0);
+    }
+
+    @Test
+    public void testEncodeToAppendable() throws Exception {
+        StringBuilder out = new StringBuilder("0x");
+        hex.encodeTo(allBytes(), 0, 256, out);
+        assertEquals("0x" + allBytesHex(), out.toString());
+    }
+
+    @Test
+    public void testEncodeBuffersToAppendable() throws Exception {
+        for (ByteBuffer in : new ByteBuffer[]{ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256)}) {
+            in.put(allBytes()).flip();
+            StringBuilder out = new StringBuilder();
+            hex.encodeTo(in, out);
+            assertEquals(allBytesHex(), out.toString());
+            assertEquals(256, in.position());
+        }
+    }
+}
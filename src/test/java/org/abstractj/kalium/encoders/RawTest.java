@@ -19,6 +19,7 @@ package org.abstractj.kalium.encoders;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertTrue;
@@ -67,4 +68,74 @@ public class RawTest {
             fail("Should not raise any exception");
         }
     }
+
+    @Test
+    public void testEncodeToAppendable() throws Exception {
+        StringBuilder out = new StringBuilder(">");
+        new Raw().encodeTo("xhellox".getBytes(), 1, 5, out);
+        assertEquals(">hello", out.toString());
+    }
+
+    @Test
+    public void testEncodeBufferToAppendable() throws Exception {
+        ByteBuffer in = ByteBuffer.allocateDirect(5);
+        in.put("hello".getBytes()).flip();
+        StringBuilder out = new StringBuilder();
+        new Raw().encodeTo(in, out);
+        assertEquals("hello", out.toString());
+        assertEquals(5, in.position());
+    }
+
+    @Test
+    public void testDecodeIntoByteArray() throws Exception {
+        byte[] out = new byte[7];
+        assertEquals(5, new Raw().decodeFrom("..hello..", 2, 5, out, 1));
+        assertEquals("\0hello\0", new String(out, "US-ASCII"));
+    }
+
+    @Test
+    public void testDecodeIntoBuffer() throws Exception {
+        ByteBuffer out = ByteBuffer.allocate(5);
+        assertEquals(5, new Raw().decodeFrom("hello", 0, 5, out));
+        assertTrue(Arrays.equals("hello".getBytes(), out.array()));
+    }
+
+    @Test
+    public void testMatchesCharsetMapping() throws Exception {
+        byte[] data = {'a', (byte) 0xff};
+        StringBuilder out = new StringBuilder();
+        new Raw().encodeTo(data, 0, data.length, out);
+        assertEquals(encoder.encode(data), out.toString());
+        byte[] decoded = new byte[2];
+        new Raw().decodeFrom("a\u00e9", 0, 2, decoded, 0);
+        assertTrue(Arrays.equals(encoder.decode("a\u00e9"), decoded));
+    }
+
+    @Test
+    public void testDecodeSurrogatesLikeCharset() throws Exception {
+        Raw raw = new Raw();
+        String[] values = {"a\uD83D\uDE00b", "\uD83D\uDE00\uD83D\uDE00", "\uD83Da", "a\uDE00", "\uDE00\uD83D", "a\uD83D"};
+        for (String value : values) {
+            for (int len = 0; len <= value.length(); len++) {
+                byte[] expected = value.substring(0, len).getBytes("US-ASCII");
+                assertEquals(expected.length, raw.decodedLength(value, 0, len));
+                byte[] out = new byte[expected.length];
+                assertEquals(expected.length, raw.decodeFrom(value, 0, len, out, 0));
+                assertTrue(Arrays.equals(expected, out));
+                ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+                assertEquals(expected.length, raw.decodeFrom(value, 0, len, buffer));
+                assertTrue(Arrays.equals(expected, buffer.array()));
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectSmallArray() throws Exception {
+        new Raw().decodeFrom("a\uD83D\uDE00b", 0, 4, new byte[2], 0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectSmallBuffer() throws Exception {
+        new Raw().decodeFrom("hello", 0, 5, ByteBuffer.allocate(4));
+    }
 }
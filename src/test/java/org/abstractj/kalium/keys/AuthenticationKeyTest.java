@@ -22,6 +22,7 @@ import java.util.Arrays;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.abstractj.kalium.NaCl.Sodium.HMACSHA512256_BYTES;
 import static org.abstractj.kalium.NaCl.Sodium.HMACSHA512256_KEYBYTES;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 import static org.abstractj.kalium.fixture.TestVectors.AUTH_HMAC_SHA512256;
@@ -121,6 +122,18 @@ public class AuthenticationKeyTest {
         assertTrue(authKey.verify(AUTH_MESSAGE, AUTH_HMAC_SHA512256, HEX));
     }
 
+    @Test
+    public void testSignMessageIntoBuffer() throws Exception {
+        AuthenticationKey key = new AuthenticationKey(AUTH_KEY, HEX);
+        byte[] message = HEX.decode("00" + AUTH_MESSAGE);
+        byte[] mac = new byte[HMACSHA512256_BYTES + 2];
+        int written = key.sign(message, 1, message.length - 1, mac, 2);
+        assertEquals(HMACSHA512256_BYTES, written);
+        assertTrue("Message sign has failed",
+                Arrays.equals(HEX.decode(AUTH_HMAC_SHA512256), Arrays.copyOfRange(mac, 2, mac.length)));
+        assertTrue(key.verify(message, 1, message.length - 1, mac, 2));
+    }
+
     @Test
     public void testDetectBadSignature() throws Exception {
         try {
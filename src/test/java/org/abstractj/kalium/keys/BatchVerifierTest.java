@@ -0,0 +1,109 @@
+/**
+ * Copyright 2013 Bruno Oliveira, and individual contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.abstractj.kalium.keys;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchVerifierTest {
+
+    private static List<BatchVerifier.SignedItem> signedItems(int count) {
+        List<BatchVerifier.SignedItem> items = new ArrayList<BatchVerifier.SignedItem>(count);
+        SigningKey[] keys = {new SigningKey(), new SigningKey(), new SigningKey()};
+        for (int i = 0; i < count; i++) {
+            SigningKey key = keys[i % keys.length];
+            byte[] message = ("message " + i).getBytes();
+            items.add(new BatchVerifier.SignedItem(key.getVerifyKey(), message, key.sign(message)));
+        }
+        return items;
+    }
+
+    private static void forge(List<BatchVerifier.SignedItem> items, int index) {
+        items.get(index).getSignature()[0] ^= 1;
+    }
+
+    @Test
+    public void testVerifyAll() throws Exception {
+        List<BatchVerifier.SignedItem> items = signedItems(100);
+        BitSet valid = new BatchVerifier(16, null).verifyAll(items);
+        assertEquals(100, valid.cardinality());
+    }
+
+    @Test
+    public void testVerifyAllReportsForgedSignatures() throws Exception {
+        List<BatchVerifier.SignedItem> items = signedItems(50);
+        forge(items, 3);
+        forge(items, 49);
+        BitSet valid = new BatchVerifier(8, null).verifyAll(items);
+        assertEquals(48, valid.cardinality());
+        assertFalse(valid.get(3));
+        assertFalse(valid.get(49));
+        assertTrue(valid.get(4));
+    }
+
+    @Test
+    public void testVerifyAllReportsTruncatedSignatures() throws Exception {
+        List<BatchVerifier.SignedItem> items = signedItems(2);
+        items.set(1, new BatchVerifier.SignedItem(items.get(1).getKey(), items.get(1).getMessage(), new byte[10]));
+        BitSet valid = new BatchVerifier().verifyAll(items);
+        assertTrue(valid.get(0));
+        assertFalse(valid.get(1));
+    }
+
+    @Test
+    public void testVerifyAllWithExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<BatchVerifier.SignedItem> items = signedItems(1000);
+            forge(items, 500);
+            BitSet valid = new BatchVerifier(32, executor).verifyAll(items);
+            assertEquals(999, valid.cardinality());
+            assertFalse(valid.get(500));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVerifyAllFromLinkedList() throws Exception {
+        List<BatchVerifier.SignedItem> items = new LinkedList<BatchVerifier.SignedItem>(signedItems(40));
+        forge(items, 39);
+        BitSet valid = new BatchVerifier(16, null).verifyAll(items);
+        assertEquals(39, valid.cardinality());
+        assertFalse(valid.get(39));
+    }
+
+    @Test
+    public void testVerifyEmptyBatch() throws Exception {
+        assertTrue(new BatchVerifier().verifyAll(new ArrayList<BatchVerifier.SignedItem>()).isEmpty());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testRejectInvalidBatchSize() throws Exception {
+        new BatchVerifier(0, null);
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.Test;
 
 import java.util.Arrays;
 
+import static org.abstractj.kalium.NaCl.Sodium.SIGNATURE_BYTES;
 import static org.abstractj.kalium.encoders.Encoder.HEX;
 import static org.abstractj.kalium.fixture.TestVectors.*;
 import static org.junit.Assert.assertEquals;
@@ -101,6 +102,17 @@ public class SigningKeyTest {
         assertTrue("Message sign has failed", Arrays.equals(signatureRaw, signedMessage));
     }
 
+    @Test
+    public void testSignMessageIntoBuffer() throws Exception {
+        SigningKey key = new SigningKey(SIGN_PRIVATE, HEX);
+        byte[] message = HEX.decode("00" + SIGN_MESSAGE);
+        byte[] signature = new byte[SIGNATURE_BYTES + 2];
+        int written = key.sign(message, 1, message.length - 1, signature, 2);
+        assertEquals(SIGNATURE_BYTES, written);
+        assertTrue("Message sign has failed", Arrays.equals(HEX.decode(SIGN_SIGNATURE),
+                Arrays.copyOfRange(signature, 2, signature.length)));
+    }
+
     @Test
     public void testSignMessageAsHex() throws Exception {
         SigningKey key = new SigningKey(SIGN_PRIVATE, HEX);
@@ -18,6 +18,7 @@ package org.abstractj.kalium.keys;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertTrue;
@@ -82,4 +83,63 @@ public class VerifyKeyTest {
         assertTrue(verifyKey.verify(SIGN_MESSAGE, SIGN_SIGNATURE, HEX));
     }
 
+    @Test
+    public void testVerifyWithOffsets() throws Exception {
+        byte[] rawSignature = HEX.decode(SIGN_SIGNATURE);
+        byte[] rawMessage = HEX.decode(SIGN_MESSAGE);
+        byte[] message = new byte[rawMessage.length + 5];
+        byte[] signature = new byte[rawSignature.length + 3];
+        System.arraycopy(rawMessage, 0, message, 5, rawMessage.length);
+        System.arraycopy(rawSignature, 0, signature, 3, rawSignature.length);
+        VerifyKey verifyKey = new VerifyKey(SIGN_PUBLIC, HEX);
+        assertTrue(verifyKey.verify(message, 5, rawMessage.length, signature, 3));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDetectBadSignatureWithOffsets() throws Exception {
+        byte[] rawSignature = HEX.decode(SIGN_SIGNATURE);
+        byte[] rawMessage = HEX.decode(SIGN_MESSAGE);
+        VerifyKey verifyKey = new VerifyKey(SIGN_PUBLIC, HEX);
+        verifyKey.verify(rawMessage, 1, rawMessage.length - 1, rawSignature, 0);
+    }
+
+    @Test
+    public void testVerifyHeapBuffers() throws Exception {
+        byte[] rawSignature = HEX.decode(SIGN_SIGNATURE);
+        byte[] rawMessage = HEX.decode(SIGN_MESSAGE);
+        ByteBuffer message = ByteBuffer.allocate(rawMessage.length + 2);
+        message.position(2);
+        message.put(rawMessage).position(2);
+        ByteBuffer signature = ByteBuffer.wrap(rawSignature);
+        VerifyKey verifyKey = new VerifyKey(SIGN_PUBLIC, HEX);
+        assertTrue(verifyKey.verify(message, signature));
+        assertEquals(2, message.position());
+        assertEquals(0, signature.position());
+    }
+
+    @Test
+    public void testVerifyDirectBuffers() throws Exception {
+        byte[] rawSignature = HEX.decode(SIGN_SIGNATURE);
+        byte[] rawMessage = HEX.decode(SIGN_MESSAGE);
+        ByteBuffer message = ByteBuffer.allocateDirect(rawMessage.length + 7);
+        message.position(7);
+        message.put(rawMessage).position(7);
+        ByteBuffer signature = ByteBuffer.allocateDirect(rawSignature.length + 4);
+        signature.position(4);
+        signature.put(rawSignature).position(4);
+        VerifyKey verifyKey = new VerifyKey(SIGN_PUBLIC, HEX);
+        assertTrue(verifyKey.verify(message, signature));
+        assertTrue(verifyKey.verify(message, ByteBuffer.wrap(rawSignature)));
+        assertTrue(verifyKey.verify(ByteBuffer.wrap(rawMessage), signature));
+        assertEquals(7, message.position());
+        assertEquals(4, signature.position());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDetectBadSignatureInBuffers() throws Exception {
+        byte[] rawSignature = HEX.decode(SIGN_SIGNATURE);
+        rawSignature[0] ^= 1;
+        VerifyKey verifyKey = new VerifyKey(SIGN_PUBLIC, HEX);
+        verifyKey.verify(ByteBuffer.wrap(HEX.decode(SIGN_MESSAGE)), ByteBuffer.wrap(rawSignature));
+    }
 }